@@ -0,0 +1,56 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.storage.SeenStore;
+import bg.paskov.scanner.storage.SeenStoreFixtures;
+import bg.paskov.scanner.util.LogErrors;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Diff of one results page (120 ads, 20 of them new) against histories of growing size
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdvertisementDiffBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int historySize;
+
+    @Param({"csv", "mapped"})
+    public String storeType;
+
+    private Path directory;
+    private SeenStore seenStore;
+    private final List<Advertisement> scanned = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("diff-benchmark");
+        seenStore = SeenStoreFixtures.open(storeType, directory, historySize, new LogErrors(directory.resolve("error.log")));
+
+        long newestKnown = SeenStoreFixtures.FIRST_ID + historySize - 1;
+        for (int i = 0; i < 120; i++) {
+            // 20 unseen IDs followed by the 100 most recent known ones
+            scanned.add(new Advertisement(newestKnown + 20 - i, "Listing " + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SeenStoreFixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public List<Advertisement> unseen() {
+        return MobileBgScanner.unseenAdvertisements(scanned, seenStore);
+    }
+}
@@ -0,0 +1,74 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LongHashSet;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Per-item cost of turning a div.item into an advertisement and looking it up in the seen set.
+// Run with "-prof gc" to compare gc.alloc.rate.norm (bytes per item) of the legacy and current code.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdvertisementExtractionBenchmark {
+
+    // Shape of the model before IDs became numeric: three Strings, hashed by the String ID
+    private record LegacyAdvertisement(String title, String link, String id) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LegacyAdvertisement that && id.equals(that.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+
+    private Element item;
+    private final Set<LegacyAdvertisement> legacySeen = new HashSet<>();
+    private final LongHashSet seenIds = new LongHashSet();
+
+    @Setup
+    public void setUp() {
+        Elements items = Jsoup.parse(
+                "<div class=\"item\"><div class=\"zaglavie\">"
+                        + "<a href=\"//www.mobile.bg/obiava-11734562431231233-bmw-x5-3-0d\">BMW X5 3.0d</a>"
+                        + "</div></div>",
+                "https://www.mobile.bg/obiavi/avtomobili-dzhipove/bmw"
+        ).select("div.item");
+        item = items.first();
+
+        for (long id = 11734562431000000L; id < 11734562431001000L; id++) {
+            legacySeen.add(new LegacyAdvertisement("title", "link", String.valueOf(id)));
+            seenIds.add(id);
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        Element linkElement = item.selectFirst(".zaglavie a");
+        String title = linkElement.text();
+        String link = linkElement.absUrl("href");
+        String id = link.replaceAll(".*obiava-(\\d+).*", "$1");
+
+        LegacyAdvertisement advertisement = new LegacyAdvertisement(title, link, id);
+        blackhole.consume(legacySeen.contains(advertisement));
+    }
+
+    @Benchmark
+    public void current(Blackhole blackhole) {
+        Advertisement advertisement = MobileBgScanner.toAdvertisement(item);
+        blackhole.consume(seenIds.contains(advertisement.id()));
+    }
+}
@@ -0,0 +1,61 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.model.Advertisement;
+import org.jsoup.Jsoup;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Extraction of advertisements from a saved results page, DOM vs streaming parser
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingExtractionBenchmark {
+
+    private static final String BASE_URI = "https://www.mobile.bg/obiavi/avtomobili-dzhipove";
+
+    private String html;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = ListingExtractionBenchmark.class.getResourceAsStream("/fixtures/mobile-bg-results.html")) {
+            html = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void dom(Blackhole blackhole) {
+        MobileBgScanner.extractFromDocument(Jsoup.parse(html, BASE_URI), blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamFullPage(Blackhole blackhole) throws IOException {
+        try (StreamParser parser = new StreamParser(Parser.htmlParser()).parse(html, BASE_URI)) {
+            MobileBgScanner.extractStreaming(parser, advertisement -> {
+                blackhole.consume(advertisement);
+                return true;
+            });
+        }
+    }
+
+    // Paginated crawl that meets a known ad after the first ten items
+    @Benchmark
+    public void streamUntilKnown(Blackhole blackhole) throws IOException {
+        int[] seen = {0};
+        try (StreamParser parser = new StreamParser(Parser.htmlParser()).parse(html, BASE_URI)) {
+            MobileBgScanner.extractStreaming(parser, (Advertisement advertisement) -> {
+                blackhole.consume(advertisement);
+                return ++seen[0] < 10;
+            });
+        }
+    }
+}
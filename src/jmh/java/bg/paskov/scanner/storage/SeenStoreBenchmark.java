@@ -0,0 +1,81 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Startup load and per-scan save cost of the seen-ad stores at growing history sizes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SeenStoreBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int historySize;
+
+    @Param({"csv", "mapped"})
+    public String storeType;
+
+    private Path directory;
+    private LogErrors logErrors;
+    private SeenStore store;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("seen-store-benchmark");
+        logErrors = new LogErrors(directory.resolve("error.log"));
+        store = SeenStoreFixtures.open(storeType, directory, historySize, logErrors);
+        nextId = SeenStoreFixtures.FIRST_ID + historySize;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SeenStoreFixtures.deleteRecursively(directory);
+    }
+
+    // Open the store as the application does at startup
+    @Benchmark
+    public SeenStore load(Loaded loaded) {
+        if ("mapped".equals(storeType)) {
+            loaded.store = MappedSeenStore.open(directory.resolve("old.ids"), logErrors);
+            return loaded.store;
+        }
+        return new JournalSeenStore(new AdvertisementJournal(directory.resolve("old.csv"), logErrors));
+    }
+
+    // Persist one scan's worth (20) of new ads
+    @Benchmark
+    public int save() {
+        List<Advertisement> advertisements = new ArrayList<>(20);
+        for (int i = 0; i < 20; i++) {
+            advertisements.add(new Advertisement(nextId++, "New listing"));
+        }
+        store.addAll(advertisements);
+        return store.size();
+    }
+
+    // The store opened by one load() call; its background work is finished outside the measurement
+    @State(Scope.Thread)
+    public static class Loaded {
+        MappedSeenStore store;
+
+        @TearDown(Level.Invocation)
+        public void close() {
+            if (store != null) {
+                store.close();
+                store = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+// Generates seen-ad histories of a given size for the benchmarks
+public final class SeenStoreFixtures {
+
+    public static final long FIRST_ID = 11_000_000_000_000_000L;
+
+    private SeenStoreFixtures() {
+    }
+
+    // Write an old.csv journal with ads FIRST_ID .. FIRST_ID + size - 1
+    public static Path writeCsv(Path directory, int size) throws IOException {
+        Path csvPath = directory.resolve("old.csv");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csvPath)) {
+            for (int i = 0; i < size; i++) {
+                Advertisement advertisement = new Advertisement(FIRST_ID + i, "BMW X5 3.0d xDrive " + i);
+                writer.write(advertisement.id() + "," + advertisement.link() + "," + advertisement.title());
+                writer.newLine();
+            }
+        }
+        return csvPath;
+    }
+
+    // Open a store of the given type ("csv" or "mapped") over a history of the given size
+    public static SeenStore open(String type, Path directory, int size, LogErrors logErrors) throws IOException {
+        Path csvPath = writeCsv(directory, size);
+
+        if ("mapped".equals(type)) {
+            MappedSeenStore store = MappedSeenStore.open(directory.resolve("old.ids"), logErrors);
+            store.importCsv(csvPath);
+            return store;
+        }
+        return new JournalSeenStore(new AdvertisementJournal(csvPath, logErrors));
+    }
+
+    // Best-effort cleanup; a background merge may still be writing a new generation
+    public static void deleteRecursively(Path directory) throws IOException {
+        for (int attempt = 0; attempt < 10 && Files.exists(directory); attempt++) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException | UncheckedIOException e) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package bg.paskov.scanner.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Latency of LogErrors.log while eight threads log at the same time, synchronous vs queued
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class LogErrorsBenchmark {
+
+    private static final RuntimeException FAILURE = new RuntimeException("Connection reset");
+
+    @Param({"sync", "async"})
+    public String mode;
+
+    private Path directory;
+    private LogErrors logErrors;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("log-benchmark");
+        logErrors = new LogErrors(directory.resolve("error.log"), "async".equals(mode));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        logErrors.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void log() {
+        logErrors.log("bg.paskov.scanner.notification.EmailSender", "ERROR", "Send email failed (1/5)", FAILURE);
+    }
+}
@@ -1,18 +1,51 @@
 package bg.paskov.scanner;
 
 import bg.paskov.scanner.config.ConfigManager;
+import bg.paskov.scanner.filter.FilterExpression;
+import bg.paskov.scanner.metrics.JmxScanMetrics;
+import bg.paskov.scanner.metrics.PrometheusEndpoint;
+import bg.paskov.scanner.metrics.ScanMetrics;
+import bg.paskov.scanner.metrics.ScanPhase;
+import bg.paskov.scanner.metrics.ScanPhaseEvent;
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.notification.CompositeNotifier;
+import bg.paskov.scanner.notification.DigestNotifier;
+import bg.paskov.scanner.notification.DurableOutbox;
 import bg.paskov.scanner.notification.EmailSender;
+import bg.paskov.scanner.notification.FileNotifier;
 import bg.paskov.scanner.notification.Notifiable;
+import bg.paskov.scanner.notification.NotificationDispatcher;
+import bg.paskov.scanner.notification.TrayNotifier;
 import bg.paskov.scanner.notification.TypesNotifire;
+import bg.paskov.scanner.query.AdvertisementHistory;
+import bg.paskov.scanner.query.ObservationStore;
+import bg.paskov.scanner.query.QueryServer;
+import bg.paskov.scanner.service.AdaptiveScanScheduler;
+import bg.paskov.scanner.service.HostRateLimiter;
+import bg.paskov.scanner.service.HttpPageFetcher;
 import bg.paskov.scanner.service.MobileBgScanner;
-import bg.paskov.scanner.service.SiteScanner;
+import bg.paskov.scanner.service.ScanSettings;
+import bg.paskov.scanner.service.ScannerPool;
+import bg.paskov.scanner.storage.AdvertisementJournal;
+import bg.paskov.scanner.storage.JournalSeenStore;
+import bg.paskov.scanner.storage.MappedSeenStore;
+import bg.paskov.scanner.storage.SeenStore;
 import bg.paskov.scanner.ui.SetupWizard;
 import bg.paskov.scanner.ui.TrayManager;
 import bg.paskov.scanner.util.LogErrors;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 public class Application {
     private final ConfigManager configManager;
@@ -70,25 +103,233 @@ public class Application {
         String from = configManager.getConfigValue("email.from");
         String to = configManager.getConfigValue("email.to");
         String password = configManager.getConfigValue("email.password");
-        String url = configManager.getConfigValue("scan.url");
 
         int interval = configManager.getInt("scan.interval.days", 1);
+        int maxPerHost = configManager.getInt("scan.concurrency.per.host", 2);
+        ScanSettings scanSettings = new ScanSettings(
+                configManager.getInt("scan.max.pages", 1),
+                "stream".equalsIgnoreCase(configManager.getConfigValue("scan.parser")),
+                scanFilter()
+        );
+
+        // Scans only enqueue notifications; delivery runs on the dispatcher's own threads
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+                notificationChannels(from, password, to),
+                configManager.getInt("notification.queue.capacity", NotificationDispatcher.DEFAULT_CAPACITY),
+                configManager.getInt("notification.threads", 1),
+                logErrors
+        );
+        dispatcher.start();
+        Notifiable delivery = dispatcher;
+
+        // Optionally coalesce alerts from all searches into one email per window
+        int digestWindowSeconds = configManager.getInt("notification.digest.window.seconds", 0);
+        if (digestWindowSeconds > 0) {
+            delivery = new DigestNotifier(
+                    delivery,
+                    TimeUnit.SECONDS.toMillis(digestWindowSeconds),
+                    configManager.getInt("notification.digest.max.items", DigestNotifier.DEFAULT_MAX_ITEMS)
+            );
+        }
+
+        // Alerts hit the disk before their ads are marked seen; undelivered ones are replayed
+        DurableOutbox notifier = new DurableOutbox(oldAdvertisementPath.resolveSibling("outbox.log"), delivery, logErrors);
+        notifier.replayPending();
+        notifier.start();
+
+        ScanMetrics metrics = ScanMetrics.global();
+        metrics.registerGauge("log_queue_depth", logErrors::queueDepth);
+        metrics.registerGauge("notification_queue_depth", dispatcher::pending);
+        metrics.registerGauge("outbox_pending", notifier::pendingCount);
+        startMetricsExport(metrics);
 
-        Notifiable notifier =
-                new EmailSender(from, password, to, TypesNotifire.WITH_RETRY, logErrors);
+        // One limiter for all scanners, so the aggregate request rate per host is bounded
+        HostRateLimiter rateLimiter = new HostRateLimiter(
+                requestsPerSecond(),
+                configManager.getInt("scan.rate.burst", 4)
+        );
+
+        // One pooled HTTP client for all scanners, so connections and TLS sessions are reused
+        HttpPageFetcher pageFetcher = new HttpPageFetcher(
+                Duration.ofSeconds(positiveOr(configManager.getInt("http.connect.timeout.seconds", 10), 10)),
+                Duration.ofSeconds(positiveOr(configManager.getInt("http.request.timeout.seconds", 30), 30)),
+                positiveOr(configManager.getInt("http.max.body.bytes", (int) HttpPageFetcher.DEFAULT_MAX_BODY_BYTES),
+                        (int) HttpPageFetcher.DEFAULT_MAX_BODY_BYTES)
+        );
+
+        // Queryable record of every ad the searches have seen, filled as scans save
+        AdvertisementHistory history = new AdvertisementHistory(oldAdvertisementPath.resolveSibling("history.log"), logErrors);
+        metrics.registerGauge("history_size", history::size);
+        // Price and presence of every scanned ad over time
+        ObservationStore observations = new ObservationStore(oldAdvertisementPath.resolveSibling("observations"),
+                Math.max(0, configManager.getInt("history.raw.retention.days", 0)), logErrors);
+        startQueryServer(history, observations);
 
-        SiteScanner mobileBgScanner =
-                new MobileBgScanner(url, notifier, logErrors, oldAdvertisementPath);
+        ScannerPool scannerPool = new ScannerPool(maxPerHost, logErrors);
+        for (String url : scanUrls()) {
+            ScanPhaseEvent loadEvent = new ScanPhaseEvent();
+            loadEvent.begin();
+            long loadStart = System.nanoTime();
+            SeenStore seenStore = seenStoreFor(url);
+            metrics.recordPhase(ScanPhase.LOAD, loadStart);
+            loadEvent.end(url, ScanPhase.LOAD, seenStore.size(), 0);
 
-        // Schedule periodic scanning at fixed intervals
+            MobileBgScanner scanner = new MobileBgScanner(url, notifier, logErrors, seenStore, scanSettings, rateLimiter, pageFetcher);
+            scanner.addScanListener(history);
+            scanner.addScanListener(observations);
+            scannerPool.addScanner(url, scanner);
+        }
+
+        if ("adaptive".equalsIgnoreCase(configManager.getConfigValue("scan.schedule"))) {
+            // Each search polls faster while ads arrive often and backs off when it is quiet
+            new AdaptiveScanScheduler(
+                    scannerPool,
+                    scheduledExecutorService,
+                    TimeUnit.SECONDS.toMillis(configManager.getInt("scan.interval.min.seconds", 60)),
+                    TimeUnit.SECONDS.toMillis(configManager.getInt("scan.interval.max.seconds", 3600)),
+                    logErrors
+            ).start();
+            return;
+        }
+
+        int intervalSeconds = configManager.getInt("scan.interval.seconds", 0);
+        if (intervalSeconds > 0) {
+            // Sub-day polling for lower detection latency
+            scheduledExecutorService.scheduleAtFixedRate(scannerPool::scan, 0, intervalSeconds, TimeUnit.SECONDS);
+            return;
+        }
+
+        // Schedule periodic scanning of all URLs at fixed intervals
         scheduledExecutorService.scheduleAtFixedRate(
-                mobileBgScanner::scan,
+                scannerPool::scan,
                 0,
                 interval,
                 TimeUnit.DAYS
         );
     }
 
+    private static int positiveOr(int value, int fallback) {
+        return value > 0 ? value : fallback;
+    }
+
+    // Requests per second allowed against one host; 0 disables the limit
+    private double requestsPerSecond() {
+        String value = configManager.getConfigValue("scan.rate.per.second");
+
+        try {
+            return value != null ? Double.parseDouble(value.trim()) : 2.0;
+        } catch (NumberFormatException e) {
+            logErrors.log("bg.paskov.scanner.Application", "WARN", "Invalid scan.rate.per.second: " + value, null);
+            return 2.0;
+        }
+    }
+
+    // Every configured channel gets its own executor and timeout; only email decides delivery success
+    private Notifiable notificationChannels(String from, String password, String to) {
+        List<String> names = configManager.getList("notification.channels");
+        CompositeNotifier channels = new CompositeNotifier(logErrors);
+
+        if (names.isEmpty() || names.contains("email")) {
+            EmailSender email = new EmailSender(from, password, to, TypesNotifire.ASYNC_RETRY, logErrors);
+            // Pooled SMTP connections stay logged in until the application shuts down
+            Runtime.getRuntime().addShutdownHook(new Thread(email::close, "smtp-close"));
+            channels.addChannel("email", email, TimeUnit.MINUTES.toMillis(15), true);
+        }
+        if (names.contains("tray")) {
+            channels.addChannel("tray", new TrayNotifier(trayManager), TimeUnit.SECONDS.toMillis(5), false);
+        }
+        if (names.contains("file")) {
+            channels.addChannel("file", new FileNotifier(oldAdvertisementPath.resolveSibling("notifications.ndjson")),
+                    TimeUnit.SECONDS.toMillis(5), false);
+        }
+        return channels;
+    }
+
+    // Collect the configured search URLs, falling back to the single legacy URL
+    private List<String> scanUrls() {
+        Set<String> urls = new LinkedHashSet<>(configManager.getList("scan.urls"));
+        String legacyUrl = configManager.getConfigValue("scan.url");
+
+        if (legacyUrl != null && !legacyUrl.isBlank()) {
+            urls.add(legacyUrl.trim());
+        }
+        return new ArrayList<>(urls);
+    }
+
+    // JMX always; Prometheus text only when metrics.port is set
+    private void startMetricsExport(ScanMetrics metrics) {
+        try {
+            JmxScanMetrics.register(metrics);
+        } catch (JMException e) {
+            logErrors.log("bg.paskov.scanner.Application", "WARN", "Could not register metrics MBean", e);
+        }
+
+        int port = configManager.getInt("metrics.port", 0);
+        if (port <= 0) {
+            return;
+        }
+        try {
+            PrometheusEndpoint endpoint = new PrometheusEndpoint(metrics, port);
+            System.out.println("Metrics on http://127.0.0.1:" + endpoint.port() + "/metrics");
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.Application", "WARN", "Could not start metrics endpoint on port " + port, e);
+        }
+    }
+
+    // Compiled scan.filter rule; an invalid rule is reported and scanning continues unfiltered
+    private Predicate<Advertisement> scanFilter() {
+        String rule = configManager.getConfigValue("scan.filter");
+        try {
+            return FilterExpression.compile(rule);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[CONFIG ERROR] scan.filter: " + e.getMessage());
+            logErrors.log("bg.paskov.scanner.Application", "ERROR", "Invalid scan.filter, notifying about all ads", e);
+            return advertisement -> true;
+        }
+    }
+
+    // Local JSON API over the history when query.port is set
+    private void startQueryServer(AdvertisementHistory history, ObservationStore observations) {
+        int port = configManager.getInt("query.port", 0);
+        if (port <= 0) {
+            return;
+        }
+        try {
+            QueryServer server = new QueryServer(history, observations, port);
+            System.out.println("Advertisement history on http://127.0.0.1:" + server.port() + "/ads");
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.Application", "WARN", "Could not start query server on port " + port, e);
+        }
+    }
+
+    // Seen-ID store of a search: the CSV journal by default, or the memory-mapped binary store
+    private SeenStore seenStoreFor(String url) {
+        Path csvPath = oldAdvertisementsPathFor(url);
+
+        if (!"mapped".equalsIgnoreCase(configManager.getConfigValue("storage.type"))) {
+            return new JournalSeenStore(new AdvertisementJournal(csvPath, logErrors));
+        }
+
+        Path prefix = csvPath.resolveSibling(csvPath.getFileName().toString().replace(".csv", ".ids"));
+        MappedSeenStore store = MappedSeenStore.open(prefix, logErrors);
+
+        // One-time migration of an existing CSV history
+        if (store.size() == 0 && Files.exists(csvPath)) {
+            store.importCsv(csvPath);
+        }
+        return store;
+    }
+
+    // The legacy URL keeps old.csv; every other search gets its own file
+    private Path oldAdvertisementsPathFor(String url) {
+        String legacyUrl = configManager.getConfigValue("scan.url");
+
+        if (legacyUrl != null && url.equals(legacyUrl.trim())) {
+            return oldAdvertisementPath;
+        }
+        return oldAdvertisementPath.resolveSibling("old-" + Integer.toHexString(url.hashCode()) + ".csv");
+    }
+
 }
 
 
@@ -18,7 +18,9 @@ public class Main {
         Path logPath = appEnvironment.getLogPathFile();
         Path oldAdvertisementPath = appEnvironment.getOldAdvertisementsPathFile();
 
-        LogErrors logErrors = new LogErrors(logPath);
+        // Asynchronous logging: a retry storm must not serialize every thread on disk I/O
+        LogErrors logErrors = new LogErrors(logPath, true);
+        Runtime.getRuntime().addShutdownHook(new Thread(logErrors::close, "log-flush"));
         ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
         ConfigManager configManager = new ConfigManager(logErrors, configPath);
         SetupWizard setupWizard = new SetupWizard(configManager, logErrors);
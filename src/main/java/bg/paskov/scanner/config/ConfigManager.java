@@ -7,6 +7,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class ConfigManager {
@@ -36,7 +38,7 @@ public class ConfigManager {
         return getConfigValue("email.from") != null
                 && getConfigValue("email.to") != null
                 && getConfigValue("email.password") != null
-                && getConfigValue("scan.url") != null;
+                && (getConfigValue("scan.url") != null || !getList("scan.urls").isEmpty());
     }
 
     // Save configuration to file
@@ -63,6 +65,23 @@ public class ConfigManager {
         return value != null ? Integer.parseInt(value) : defaultValue;
     }
 
+    // Read a comma-separated value as a list of trimmed, non-empty entries
+    public List<String> getList(String key) {
+        String value = getConfigValue(key);
+        List<String> values = new ArrayList<>();
+
+        if (value == null) {
+            return values;
+        }
+
+        for (String part : value.split(",")) {
+            if (!part.isBlank()) {
+                values.add(part.trim());
+            }
+        }
+        return values;
+    }
+
     // Clear configuration and delete file
     public void clearProperties() {
         try {
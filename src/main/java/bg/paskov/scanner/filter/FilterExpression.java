@@ -0,0 +1,236 @@
+package bg.paskov.scanner.filter;
+
+import bg.paskov.scanner.model.Advertisement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+// Compiles a filter rule such as  price < 15000 && year >= 2015 && location ~ "София"
+// into a predicate once, so matching an ad is a few field reads and comparisons.
+//
+//   expression := or
+//   or         := and ( "||" and )*
+//   and        := unary ( "&&" unary )*
+//   unary      := "!" unary | "(" or ")" | comparison
+//   comparison := numberField ( < | <= | > | >= | == | != ) number
+//               | textField ( == | != | ~ ) "text"
+//
+// Number fields: price, year, mileage. Text fields: title, fuel, location.
+// Text comparisons ignore case; ~ means "contains". A comparison against a value
+// the ad does not show is false.
+public final class FilterExpression {
+
+    private final String source;
+    private final List<Token> tokens;
+    private int position;
+
+    private FilterExpression(String source) {
+        this.source = source;
+        this.tokens = tokenize(source);
+    }
+
+    // Blank rules match everything
+    public static Predicate<Advertisement> compile(String rule) {
+        if (rule == null || rule.isBlank()) {
+            return advertisement -> true;
+        }
+
+        FilterExpression parser = new FilterExpression(rule);
+        Predicate<Advertisement> predicate = parser.or();
+        if (parser.position < parser.tokens.size()) {
+            throw parser.error("Unexpected '" + parser.peek().text() + "'");
+        }
+        return predicate;
+    }
+
+    private Predicate<Advertisement> or() {
+        Predicate<Advertisement> left = and();
+        while (accept("||")) {
+            Predicate<Advertisement> first = left;
+            Predicate<Advertisement> second = and();
+            left = advertisement -> first.test(advertisement) || second.test(advertisement);
+        }
+        return left;
+    }
+
+    private Predicate<Advertisement> and() {
+        Predicate<Advertisement> left = unary();
+        while (accept("&&")) {
+            Predicate<Advertisement> first = left;
+            Predicate<Advertisement> second = unary();
+            left = advertisement -> first.test(advertisement) && second.test(advertisement);
+        }
+        return left;
+    }
+
+    private Predicate<Advertisement> unary() {
+        if (accept("!")) {
+            Predicate<Advertisement> operand = unary();
+            return advertisement -> !operand.test(advertisement);
+        }
+        if (accept("(")) {
+            Predicate<Advertisement> inner = or();
+            expect(")");
+            return inner;
+        }
+        return comparison();
+    }
+
+    private Predicate<Advertisement> comparison() {
+        Token field = next("field name");
+        if (field.type() != TokenType.WORD) {
+            throw error("Expected a field name, found '" + field.text() + "'");
+        }
+        Token operator = next("operator");
+        Token value = next("value");
+
+        ToIntFunction<Advertisement> number = numberField(field.text());
+        if (number != null) {
+            if (value.type() != TokenType.NUMBER) {
+                throw error("Field " + field.text() + " needs a number, found '" + value.text() + "'");
+            }
+            return numberComparison(number, operator.text(), Long.parseLong(value.text()));
+        }
+
+        Function<Advertisement, String> text = textField(field.text());
+        if (text != null) {
+            if (value.type() != TokenType.STRING) {
+                throw error("Field " + field.text() + " needs a quoted text, found '" + value.text() + "'");
+            }
+            return textComparison(text, operator.text(), value.text().toLowerCase(Locale.ROOT));
+        }
+
+        throw error("Unknown field '" + field.text() + "'");
+    }
+
+    private Predicate<Advertisement> numberComparison(ToIntFunction<Advertisement> field, String operator, long value) {
+        return switch (operator) {
+            case "<" -> advertisement -> known(field, advertisement) && field.applyAsInt(advertisement) < value;
+            case "<=" -> advertisement -> known(field, advertisement) && field.applyAsInt(advertisement) <= value;
+            case ">" -> advertisement -> known(field, advertisement) && field.applyAsInt(advertisement) > value;
+            case ">=" -> advertisement -> known(field, advertisement) && field.applyAsInt(advertisement) >= value;
+            case "==" -> advertisement -> known(field, advertisement) && field.applyAsInt(advertisement) == value;
+            case "!=" -> advertisement -> known(field, advertisement) && field.applyAsInt(advertisement) != value;
+            default -> throw error("Operator '" + operator + "' does not apply to numbers");
+        };
+    }
+
+    private Predicate<Advertisement> textComparison(Function<Advertisement, String> field, String operator, String value) {
+        Predicate<String> matches = switch (operator) {
+            case "==" -> text -> text.equals(value);
+            case "!=" -> text -> !text.equals(value);
+            case "~" -> text -> text.contains(value);
+            default -> throw error("Operator '" + operator + "' does not apply to text");
+        };
+
+        return advertisement -> {
+            String text = field.apply(advertisement);
+            return text != null && matches.test(text.toLowerCase(Locale.ROOT));
+        };
+    }
+
+    private static boolean known(ToIntFunction<Advertisement> field, Advertisement advertisement) {
+        return field.applyAsInt(advertisement) != Advertisement.UNKNOWN;
+    }
+
+    private static ToIntFunction<Advertisement> numberField(String name) {
+        return switch (name) {
+            case "price" -> Advertisement::price;
+            case "year" -> Advertisement::year;
+            case "mileage" -> Advertisement::mileage;
+            default -> null;
+        };
+    }
+
+    private static Function<Advertisement, String> textField(String name) {
+        return switch (name) {
+            case "title" -> Advertisement::title;
+            case "fuel" -> Advertisement::fuel;
+            case "location" -> Advertisement::location;
+            default -> null;
+        };
+    }
+
+    private boolean accept(String text) {
+        if (position < tokens.size() && tokens.get(position).type() == TokenType.SYMBOL && tokens.get(position).text().equals(text)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String text) {
+        if (!accept(text)) {
+            throw error("Expected '" + text + "'");
+        }
+    }
+
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    private Token next(String expected) {
+        if (position >= tokens.size()) {
+            throw error("Expected " + expected + " at end of rule");
+        }
+        return tokens.get(position++);
+    }
+
+    private IllegalArgumentException error(String message) {
+        int offset = position < tokens.size() ? tokens.get(position).offset() : source.length();
+        return new IllegalArgumentException(message + " (at character " + (offset + 1) + " of \"" + source + "\")");
+    }
+
+    private enum TokenType { WORD, NUMBER, STRING, SYMBOL }
+
+    private record Token(TokenType type, String text, int offset) {
+    }
+
+    private static List<Token> tokenize(String source) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            int start = i;
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isLetter(c)) {
+                while (i < source.length() && Character.isLetterOrDigit(source.charAt(i))) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.WORD, source.substring(start, i), start));
+            } else if (Character.isDigit(c)) {
+                // Digit groups may be separated with '_', e.g. 15_000
+                while (i < source.length() && (Character.isDigit(source.charAt(i)) || source.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.NUMBER, source.substring(start, i).replace("_", ""), start));
+            } else if (c == '"' || c == '\'') {
+                int end = source.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated text starting at character " + (start + 1) + " of \"" + source + "\"");
+                }
+                tokens.add(new Token(TokenType.STRING, source.substring(i + 1, end), start));
+                i = end + 1;
+            } else {
+                String two = i + 1 < source.length() ? source.substring(i, i + 2) : "";
+                if (List.of("&&", "||", "<=", ">=", "==", "!=").contains(two)) {
+                    tokens.add(new Token(TokenType.SYMBOL, two, start));
+                    i += 2;
+                } else if ("<>!()~".indexOf(c) >= 0) {
+                    tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c), start));
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("Unexpected character '" + c + "' at character " + (start + 1) + " of \"" + source + "\"");
+                }
+            }
+        }
+        return tokens;
+    }
+}
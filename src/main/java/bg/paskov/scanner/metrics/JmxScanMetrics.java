@@ -0,0 +1,91 @@
+package bg.paskov.scanner.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Exposes ScanMetrics as an MXBean on the platform MBean server
+public class JmxScanMetrics implements ScanMetricsMXBean {
+
+    public static final String OBJECT_NAME = "bg.paskov.scanner:type=ScanMetrics";
+
+    private final ScanMetrics metrics;
+
+    public JmxScanMetrics(ScanMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Register the metrics, replacing an earlier registration under the same name
+    public static ObjectName register(ScanMetrics metrics) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(new JmxScanMetrics(metrics), name);
+        return name;
+    }
+
+    @Override
+    public long getScans() {
+        return metrics.scans();
+    }
+
+    @Override
+    public long getAdsSeen() {
+        return metrics.adsSeen();
+    }
+
+    @Override
+    public long getAdsNew() {
+        return metrics.adsNew();
+    }
+
+    @Override
+    public long getBytesDownloaded() {
+        return metrics.bytesDownloaded();
+    }
+
+    @Override
+    public long getEmailAttempts() {
+        return metrics.emailAttempts();
+    }
+
+    @Override
+    public long getEmailFailures() {
+        return metrics.emailFailures();
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCounts() {
+        return perPhase(LatencyHistogram::count);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMeanMillis() {
+        return perPhase(LatencyHistogram::meanMillis);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP99Millis() {
+        return perPhase(histogram -> histogram.quantileUpperBoundMillis(0.99));
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        return metrics.gaugeValues();
+    }
+
+    private <T> Map<String, T> perPhase(Function<LatencyHistogram, T> value) {
+        Map<String, T> values = new LinkedHashMap<>();
+        for (ScanPhase phase : ScanPhase.values()) {
+            values.put(phase.metricName(), value.apply(metrics.phase(phase)));
+        }
+        return values;
+    }
+}
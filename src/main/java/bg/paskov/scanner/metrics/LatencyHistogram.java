@@ -0,0 +1,82 @@
+package bg.paskov.scanner.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free latency histogram with fixed buckets, cheap enough to record on every scan
+public class LatencyHistogram {
+
+    // Upper bounds in seconds, from 1 ms to 2 minutes
+    static final double[] BUCKET_BOUNDS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120};
+
+    private static final long[] BOUND_NANOS = new long[BUCKET_BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            BOUND_NANOS[i] = (long) (BUCKET_BOUNDS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    // Last slot counts observations above the largest bound
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUND_NANOS.length && nanos > BOUND_NANOS[bucket]) {
+            bucket++;
+        }
+
+        buckets[bucket].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public double meanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : sumNanos.sum() / (double) n / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // Cumulative counts per bucket bound, as Prometheus expects
+    public long[] cumulativeCounts() {
+        long[] cumulative = new long[buckets.length];
+        long running = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            running += buckets[i].sum();
+            cumulative[i] = running;
+        }
+        return cumulative;
+    }
+
+    // Upper bound of the bucket that holds the given quantile, in milliseconds
+    public double quantileUpperBoundMillis(double quantile) {
+        long[] cumulative = cumulativeCounts();
+        long total = cumulative[cumulative.length - 1];
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(quantile * total);
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (cumulative[i] >= rank) {
+                return BUCKET_BOUNDS[i] * 1000;
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+}
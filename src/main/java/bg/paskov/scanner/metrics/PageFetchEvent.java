@@ -0,0 +1,34 @@
+package bg.paskov.scanner.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Request of one results page until its response headers arrived: DNS, connect, TLS and time to first byte
+@Name("bg.paskov.scanner.PageFetch")
+@Label("Page Fetch")
+@Category({"Scanner", "HTTP"})
+@Description("HTTP request of a results page until the response headers arrived")
+@StackTrace(false)
+public class PageFetchEvent extends jdk.jfr.Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Page")
+    public int page;
+
+    @Label("Status Code")
+    public int statusCode;
+
+    @Label("Content Length")
+    @Description("Declared body size, -1 when the server streams the body")
+    @DataAmount
+    public long contentLength;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,34 @@
+package bg.paskov.scanner.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One attempt of an operation run by RetryExecutor
+@Name("bg.paskov.scanner.RetryAttempt")
+@Label("Retry Attempt")
+@Category({"Scanner", "Retry"})
+@StackTrace(false)
+public class RetryAttemptEvent extends jdk.jfr.Event {
+
+    @Label("Module")
+    public String module;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("Max Attempts")
+    public int maxAttempts;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    @Label("Error")
+    @Description("Exception class of a failed attempt")
+    public String error;
+}
@@ -0,0 +1,28 @@
+package bg.paskov.scanner.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Wait between two attempts; asynchronous retries end it on the thread of the next attempt
+@Name("bg.paskov.scanner.RetryBackoff")
+@Label("Retry Backoff")
+@Category({"Scanner", "Retry"})
+@StackTrace(false)
+public class RetryBackoffEvent extends jdk.jfr.Event {
+
+    @Label("Module")
+    public String module;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("After Attempt")
+    public int attempt;
+
+    @Label("Planned Delay")
+    @Timespan(Timespan.MILLISECONDS)
+    public long delayMillis;
+}
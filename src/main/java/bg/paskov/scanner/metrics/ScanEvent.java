@@ -0,0 +1,37 @@
+package bg.paskov.scanner.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One complete scan of a search, from the first request to the last saved ID
+@Name("bg.paskov.scanner.Scan")
+@Label("Scan")
+@Category({"Scanner", "Scan"})
+@Description("One scan of a search URL")
+@StackTrace(false)
+public class ScanEvent extends jdk.jfr.Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Pages")
+    public int pages;
+
+    @Label("Bytes Downloaded")
+    @DataAmount
+    public long bytes;
+
+    @Label("Ads Seen")
+    public int adsSeen;
+
+    @Label("Ads New")
+    public int adsNew;
+
+    @Label("Not Modified")
+    @Description("The first page answered 304 or had the same items as the last scan")
+    public boolean notModified;
+}
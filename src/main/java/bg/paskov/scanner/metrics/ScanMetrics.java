@@ -0,0 +1,149 @@
+package bg.paskov.scanner.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Process-wide scan metrics: per-phase latency histograms, counters and gauges
+public class ScanMetrics {
+
+    private static final ScanMetrics GLOBAL = new ScanMetrics();
+
+    private final Map<ScanPhase, LatencyHistogram> phases = new EnumMap<>(ScanPhase.class);
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder adsSeen = new LongAdder();
+    private final LongAdder adsNew = new LongAdder();
+    private final LongAdder adsChanged = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LongAdder emailAttempts = new LongAdder();
+    private final LongAdder emailFailures = new LongAdder();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    public ScanMetrics() {
+        for (ScanPhase phase : ScanPhase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    // The instance the application records into
+    public static ScanMetrics global() {
+        return GLOBAL;
+    }
+
+    // Record a phase that started at the given System.nanoTime()
+    public void recordPhase(ScanPhase phase, long startNanos) {
+        phases.get(phase).record(System.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram phase(ScanPhase phase) {
+        return phases.get(phase);
+    }
+
+    public void recordScan(int seen, int unseen) {
+        scans.increment();
+        adsSeen.add(seen);
+        adsNew.add(unseen);
+    }
+
+    // Known ads that came back with a different fingerprint
+    public void recordChanges(int changed) {
+        adsChanged.add(changed);
+    }
+
+    public void addBytesDownloaded(long bytes) {
+        bytesDownloaded.add(bytes);
+    }
+
+    public void recordEmailAttempt(boolean failed) {
+        emailAttempts.increment();
+        if (failed) {
+            emailFailures.increment();
+        }
+    }
+
+    // Sampled when metrics are read, e.g. a queue size
+    public void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public long scans() {
+        return scans.sum();
+    }
+
+    public long adsSeen() {
+        return adsSeen.sum();
+    }
+
+    public long adsNew() {
+        return adsNew.sum();
+    }
+
+    public long adsChanged() {
+        return adsChanged.sum();
+    }
+
+    public long bytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    public long emailAttempts() {
+        return emailAttempts.sum();
+    }
+
+    public long emailFailures() {
+        return emailFailures.sum();
+    }
+
+    public Map<String, Long> gaugeValues() {
+        Map<String, Long> values = new ConcurrentSkipListMap<>();
+        gauges.forEach((name, supplier) -> values.put(name, supplier.getAsLong()));
+        return values;
+    }
+
+    // Prometheus text exposition format (version 0.0.4)
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+
+        text.append("# HELP scanner_phase_seconds Duration of each scan phase\n");
+        text.append("# TYPE scanner_phase_seconds histogram\n");
+        for (ScanPhase phase : ScanPhase.values()) {
+            LatencyHistogram histogram = phases.get(phase);
+            long[] cumulative = histogram.cumulativeCounts();
+            String label = "phase=\"" + phase.metricName() + "\"";
+
+            for (int i = 0; i < LatencyHistogram.BUCKET_BOUNDS.length; i++) {
+                text.append("scanner_phase_seconds_bucket{").append(label).append(",le=\"")
+                        .append(LatencyHistogram.BUCKET_BOUNDS[i]).append("\"} ").append(cumulative[i]).append('\n');
+            }
+            text.append("scanner_phase_seconds_bucket{").append(label).append(",le=\"+Inf\"} ")
+                    .append(cumulative[cumulative.length - 1]).append('\n');
+            text.append("scanner_phase_seconds_sum{").append(label).append("} ")
+                    .append(String.format(Locale.ROOT, "%.6f", histogram.sumSeconds())).append('\n');
+            text.append("scanner_phase_seconds_count{").append(label).append("} ").append(histogram.count()).append('\n');
+        }
+
+        counter(text, "scanner_scans_total", "Completed scans", scans());
+        counter(text, "scanner_ads_seen_total", "Advertisements extracted from result pages", adsSeen());
+        counter(text, "scanner_ads_new_total", "Advertisements not seen before", adsNew());
+        counter(text, "scanner_ads_changed_total", "Known advertisements whose price or details changed", adsChanged());
+        counter(text, "scanner_downloaded_bytes_total", "Bytes received for result pages", bytesDownloaded());
+        counter(text, "scanner_email_attempts_total", "SMTP send attempts", emailAttempts());
+        counter(text, "scanner_email_failures_total", "Failed SMTP send attempts", emailFailures());
+
+        gaugeValues().forEach((name, value) -> {
+            String metric = "scanner_" + name;
+            text.append("# TYPE ").append(metric).append(" gauge\n");
+            text.append(metric).append(' ').append(value).append('\n');
+        });
+        return text.toString();
+    }
+
+    private static void counter(StringBuilder text, String name, String help, long value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,30 @@
+package bg.paskov.scanner.metrics;
+
+import java.util.Map;
+
+// Read-only view of the scan metrics for JConsole / VisualVM
+public interface ScanMetricsMXBean {
+
+    long getScans();
+
+    long getAdsSeen();
+
+    long getAdsNew();
+
+    long getBytesDownloaded();
+
+    long getEmailAttempts();
+
+    long getEmailFailures();
+
+    // Phase name to number of timed runs
+    Map<String, Long> getPhaseCounts();
+
+    // Phase name to mean duration in milliseconds
+    Map<String, Double> getPhaseMeanMillis();
+
+    // Phase name to the upper bound of the bucket holding the 99th percentile, in milliseconds
+    Map<String, Double> getPhaseP99Millis();
+
+    Map<String, Long> getGauges();
+}
@@ -0,0 +1,15 @@
+package bg.paskov.scanner.metrics;
+
+// Timed steps of a scan, in the order they run
+public enum ScanPhase {
+    DOWNLOAD, // request sent until response headers arrived
+    PARSE,    // body transfer and extraction; the body is parsed while it downloads
+    LOAD,     // opening a search's seen-ID store
+    DIFF,
+    SAVE,
+    NOTIFY;   // handing alerts to the outbox, not the delivery itself
+
+    public String metricName() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,43 @@
+package bg.paskov.scanner.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One step of a scan; the same phases as the latency histograms
+@Name("bg.paskov.scanner.ScanPhase")
+@Label("Scan Phase")
+@Category({"Scanner", "Scan"})
+@Description("Parse, load, diff, save or notify step of a scan")
+@StackTrace(false)
+public class ScanPhaseEvent extends jdk.jfr.Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Items")
+    @Description("Advertisements handled in this step")
+    public int items;
+
+    @Label("Bytes")
+    @Description("Compressed bytes read from the network during this step")
+    @DataAmount
+    public long bytes;
+
+    // Fill in and commit, skipping the field writes when nobody records the event
+    public void end(String url, ScanPhase phase, int items, long bytes) {
+        if (shouldCommit()) {
+            this.url = url;
+            this.phase = phase.metricName();
+            this.items = items;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
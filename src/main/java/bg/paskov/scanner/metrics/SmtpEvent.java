@@ -0,0 +1,25 @@
+package bg.paskov.scanner.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One SMTP round trip group: "connect" is connect, STARTTLS and AUTH; "send" is MAIL, RCPT and DATA
+@Name("bg.paskov.scanner.Smtp")
+@Label("SMTP Operation")
+@Category({"Scanner", "SMTP"})
+@Description("Connecting to or sending through the SMTP server")
+@StackTrace(false)
+public class SmtpEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Recipients")
+    public int recipients;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -1,39 +1,78 @@
 package bg.paskov.scanner.model;
 
-public class Advertisement {
-    private final String title;
-    private final String link;
-    private final String id;
-
-    public Advertisement(String title, String link, String id) {
-        this.title = title;
-        this.link = link;
-        this.id = id;
+import bg.paskov.scanner.util.Hashing;
+
+// A listing identified by its numeric mobile.bg ID; the link is derived from the ID.
+// Numeric fields are UNKNOWN and text fields null when the result item does not show them.
+public record Advertisement(long id, String title, int price, int year, int mileage, String fuel, String location) {
+
+    public static final String LINK_PREFIX = "https://www.mobile.bg/obiava-";
+    public static final int UNKNOWN = -1;
+    private static final String ID_MARKER = "obiava-";
+
+    public Advertisement(long id, String title) {
+        this(id, title, UNKNOWN, UNKNOWN, UNKNOWN, null, null);
     }
 
-    public String getLink() {
-        return link;
+    public String link() {
+        return LINK_PREFIX + id;
     }
 
-    public String getTitle() {
-        return title;
+    // 64-bit summary of the listed fields: the price in the high half, so a change can be told
+    // apart as a price change without the old record, and a hash of the other fields in the low
+    // half. Never 0, which stores use for "no fingerprint".
+    public long fingerprint() {
+        long hash = Hashing.FNV_OFFSET_BASIS;
+        hash = Hashing.fnv1a64(hash, title);
+        hash = Hashing.fnv1a64(hash, ((long) year << 32) | (mileage & 0xffffffffL));
+        hash = Hashing.fnv1a64(hash, fuel);
+        hash = Hashing.fnv1a64(hash, location);
+
+        int details = (int) (hash ^ (hash >>> 32));
+        return ((long) price << 32) | ((details == 0 ? 1 : details) & 0xffffffffL);
     }
 
-    public String getId() {
-        return id;
+    // Price recorded in a fingerprint
+    public static int priceOf(long fingerprint) {
+        return (int) (fingerprint >> 32);
     }
 
+    // Extract the numeric ID from a link like "//www.mobile.bg/obiava-11734...-bmw-x5", or -1 if absent
+    public static long parseId(String link) {
+        if (link == null) {
+            return -1;
+        }
+
+        int start = link.indexOf(ID_MARKER);
+        if (start < 0) {
+            return -1;
+        }
+        start += ID_MARKER.length();
+
+        long id = 0;
+        int i = start;
+        while (i < link.length()) {
+            char c = link.charAt(i);
+            if (c < '0' || c > '9' || i - start >= 18) {
+                break;
+            }
+            id = id * 10 + (c - '0');
+            i++;
+        }
+
+        return i > start ? id : -1;
+    }
+
+    // Advertisements are the same listing when their IDs match
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Advertisement that)) return false;
-        return id.equals(that.id);
+        return id == that.id;
     }
 
     @Override
     public int hashCode() {
-        return id.hashCode();
+        return Long.hashCode(id);
     }
-
-
 }
@@ -0,0 +1,31 @@
+package bg.paskov.scanner.model;
+
+// A known listing that came back with different details. Only the price of the previous
+// version is known; other fields are compared through the fingerprint.
+public record AdvertisementChange(Advertisement advertisement, Type type, int previousPrice) {
+
+    public enum Type {
+        PRICE_DROP,
+        PRICE_RISE,
+        // Same price (or the price appeared or vanished), other fields changed
+        DETAILS_CHANGED
+    }
+
+    // The change from the stored fingerprint to the current ad, or null if nothing changed
+    public static AdvertisementChange between(long previousFingerprint, Advertisement current) {
+        long fingerprint = current.fingerprint();
+        if (fingerprint == previousFingerprint) {
+            return null;
+        }
+
+        int previousPrice = Advertisement.priceOf(previousFingerprint);
+        int price = current.price();
+        Type type;
+        if (previousPrice == Advertisement.UNKNOWN || price == Advertisement.UNKNOWN || previousPrice == price) {
+            type = Type.DETAILS_CHANGED;
+        } else {
+            type = price < previousPrice ? Type.PRICE_DROP : Type.PRICE_RISE;
+        }
+        return new AdvertisementChange(current, type, previousPrice);
+    }
+}
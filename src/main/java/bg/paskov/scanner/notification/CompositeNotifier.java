@@ -0,0 +1,89 @@
+package bg.paskov.scanner.notification;
+
+import bg.paskov.scanner.util.LogErrors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Fans a notification out to several channels in parallel, each isolated on its own executor
+public class CompositeNotifier implements Notifiable, AutoCloseable {
+
+    private final List<Channel> channels = new ArrayList<>();
+    private final LogErrors logErrors;
+
+    public CompositeNotifier(LogErrors logErrors) {
+        this.logErrors = logErrors;
+    }
+
+    // Register a channel. Required channels decide whether delivery succeeded;
+    // best-effort channels are only logged when they fail or time out.
+    public void addChannel(String name, Notifiable notifier, long timeoutMillis, boolean required) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().daemon().name("notify-" + name).factory()
+        );
+        channels.add(new Channel(name, notifier, executor, timeoutMillis, required));
+    }
+
+    public int size() {
+        return channels.size();
+    }
+
+    @Override
+    public void sendNotification(String title, String message) {
+        sendNotificationAsync(title, message);
+    }
+
+    // Completes when every required channel has delivered, or when all channels finished if none is required
+    @Override
+    public CompletableFuture<Void> sendNotificationAsync(String title, String message) {
+        List<CompletableFuture<Void>> required = new ArrayList<>();
+        List<CompletableFuture<Void>> all = new ArrayList<>();
+
+        for (Channel channel : channels) {
+            CompletableFuture<Void> delivery = deliver(channel, title, message);
+            all.add(delivery.exceptionally(failure -> null));
+
+            if (channel.required()) {
+                required.add(delivery);
+            }
+        }
+
+        List<CompletableFuture<Void>> awaited = required.isEmpty() ? all : required;
+        return CompletableFuture.allOf(awaited.toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> deliver(Channel channel, String title, String message) {
+        return CompletableFuture
+                .supplyAsync(() -> channel.notifier().sendNotificationAsync(title, message), channel.executor())
+                .thenCompose(sent -> sent)
+                .orTimeout(channel.timeoutMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause()
+                                : failure;
+                        logErrors.log(
+                                "bg.paskov.scanner.notification.CompositeNotifier",
+                                channel.required() ? "ERROR" : "WARN",
+                                "Channel " + channel.name() + " failed: " + cause,
+                                null
+                        );
+                    }
+                });
+    }
+
+    @Override
+    public void close() {
+        for (Channel channel : channels) {
+            channel.executor().shutdown();
+        }
+    }
+
+    private record Channel(String name, Notifiable notifier, ExecutorService executor, long timeoutMillis, boolean required) {
+    }
+}
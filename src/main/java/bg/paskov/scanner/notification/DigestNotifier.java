@@ -0,0 +1,129 @@
+package bg.paskov.scanner.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Coalesces alerts into one message, sent when the window elapses or enough alerts pile up
+public class DigestNotifier implements Notifiable, AutoCloseable {
+
+    public static final int DEFAULT_MAX_ITEMS = 20;
+
+    private final Notifiable delegate;
+    private final long windowMillis;
+    private final int maxItems;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("digest-flush").factory()
+    );
+
+    private List<DigestItem> items = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public DigestNotifier(Notifiable delegate, long windowMillis, int maxItems) {
+        this.delegate = delegate;
+        this.windowMillis = windowMillis;
+        this.maxItems = Math.max(1, maxItems);
+    }
+
+    @Override
+    public void sendNotification(String title, String message) {
+        sendNotificationAsync(title, message);
+    }
+
+    // Add to the current digest; the future completes when the combined message is delivered
+    @Override
+    public CompletableFuture<Void> sendNotificationAsync(String title, String message) {
+        DigestItem item = new DigestItem(title, message, new CompletableFuture<>());
+        boolean full;
+
+        lock.lock();
+        try {
+            items.add(item);
+            full = items.size() >= maxItems;
+
+            // The window starts with the first alert of a digest
+            if (!full && scheduledFlush == null) {
+                scheduledFlush = flushScheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full) {
+            flush();
+        }
+        return item.result();
+    }
+
+    // Send everything gathered so far as one message
+    public void flush() {
+        List<DigestItem> batch;
+
+        lock.lock();
+        try {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            if (items.isEmpty()) {
+                return;
+            }
+            batch = items;
+            items = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        CompletableFuture<Void> sent;
+        try {
+            sent = delegate.sendNotificationAsync(digestTitle(batch), digestMessage(batch));
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+
+        sent.whenComplete((ignored, failure) -> {
+            for (DigestItem item : batch) {
+                if (failure == null) {
+                    item.result().complete(null);
+                } else {
+                    item.result().completeExceptionally(failure);
+                }
+            }
+        });
+    }
+
+    // A single alert keeps its own title; several share one
+    static String digestTitle(List<DigestItem> batch) {
+        String first = batch.get(0).title();
+        boolean sameTitle = batch.stream().allMatch(item -> first.equals(item.title()));
+
+        if (batch.size() == 1 || sameTitle) {
+            return first;
+        }
+        return batch.size() + " new alerts";
+    }
+
+    static String digestMessage(List<DigestItem> batch) {
+        StringBuilder message = new StringBuilder();
+        for (DigestItem item : batch) {
+            message.append(item.message());
+        }
+        return message.toString();
+    }
+
+    // Send what is pending and stop the timer
+    @Override
+    public void close() {
+        flush();
+        flushScheduler.shutdown();
+    }
+
+    record DigestItem(String title, String message, CompletableFuture<Void> result) {
+    }
+}
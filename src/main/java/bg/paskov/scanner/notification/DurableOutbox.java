@@ -0,0 +1,277 @@
+package bg.paskov.scanner.notification;
+
+import bg.paskov.scanner.storage.AdvertisementJournal;
+import bg.paskov.scanner.util.LogErrors;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-ahead log for notifications: an alert is on disk before its ads are marked seen,
+// and stays there until delivery is acknowledged.
+//
+// File format, one record per line, with a key unique to each enqueued alert:
+//   P <key> <base64 title> <base64 message>   pending notification
+//   A <key>                                   delivered
+public class DurableOutbox implements Notifiable, AutoCloseable {
+
+    public static final long DEFAULT_REDELIVERY_INTERVAL_MILLIS = 5 * 60_000;
+    private static final int COMPACT_AFTER_ACKS = 1000;
+
+    private final Path outboxPath;
+    private final Notifiable delivery;
+    private final LogErrors logErrors;
+    private final long redeliveryIntervalMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, PendingNotification> pending = new LinkedHashMap<>();
+    private final Set<String> inFlight = new HashSet<>();
+    private int acksSinceCompaction;
+
+    private final ScheduledExecutorService redeliveryScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("outbox-redelivery").factory()
+    );
+
+    public DurableOutbox(Path outboxPath, Notifiable delivery, LogErrors logErrors) {
+        this(outboxPath, delivery, logErrors, DEFAULT_REDELIVERY_INTERVAL_MILLIS);
+    }
+
+    public DurableOutbox(Path outboxPath, Notifiable delivery, LogErrors logErrors, long redeliveryIntervalMillis) {
+        this.outboxPath = outboxPath;
+        this.delivery = delivery;
+        this.logErrors = logErrors;
+        this.redeliveryIntervalMillis = redeliveryIntervalMillis;
+
+        load();
+        compact();
+    }
+
+    // Entries whose delivery failed permanently are retried later instead of being dropped
+    public void start() {
+        redeliveryScheduler.scheduleWithFixedDelay(this::replayPending, redeliveryIntervalMillis,
+                redeliveryIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Persist the notification, then hand it to delivery; returns once it is durable
+    @Override
+    public void sendNotification(String title, String message) {
+        sendNotificationAsync(title, message);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendNotificationAsync(String title, String message) {
+        PendingNotification notification = new PendingNotification(UUID.randomUUID().toString(), title, message);
+
+        lock.lock();
+        try {
+            if (isPending(title, message)) {
+                // Same alert still undelivered, e.g. a scan re-found ads after a crash before they
+                // were saved. Once delivered, the same text is a new alert (a relist, a second drop).
+                return CompletableFuture.completedFuture(null);
+            }
+
+            appendRecord("P\t" + notification.key() + "\t" + encode(title) + "\t" + encode(message));
+            pending.put(notification.key(), notification);
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.notification.DurableOutbox", "ERROR", "Failed to persist notification: " + title, e);
+            // Not durable, but still worth trying to deliver
+            return delivery.sendNotificationAsync(title, message);
+        } finally {
+            lock.unlock();
+        }
+
+        return dispatch(notification);
+    }
+
+    // Re-dispatch every pending notification that is not currently being delivered
+    public void replayPending() {
+        List<PendingNotification> toReplay = new ArrayList<>();
+
+        lock.lock();
+        try {
+            for (PendingNotification notification : pending.values()) {
+                if (!inFlight.contains(notification.key())) {
+                    toReplay.add(notification);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PendingNotification notification : toReplay) {
+            dispatch(notification);
+        }
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must be called with the lock held
+    private boolean isPending(String title, String message) {
+        for (PendingNotification notification : pending.values()) {
+            if (Objects.equals(notification.title(), title) && Objects.equals(notification.message(), message)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<Void> dispatch(PendingNotification notification) {
+        lock.lock();
+        try {
+            if (!inFlight.add(notification.key())) {
+                return CompletableFuture.completedFuture(null);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        CompletableFuture<Void> sent;
+        try {
+            sent = delivery.sendNotificationAsync(notification.title(), notification.message());
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+
+        return sent.whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                acknowledge(notification.key());
+            } else {
+                release(notification.key());
+            }
+        });
+    }
+
+    // Delivery confirmed: record it so the notification is never replayed
+    private void acknowledge(String key) {
+        lock.lock();
+        try {
+            inFlight.remove(key);
+            if (pending.remove(key) == null) {
+                return;
+            }
+            appendRecord("A\t" + key);
+
+            if (++acksSinceCompaction >= COMPACT_AFTER_ACKS) {
+                compact();
+            }
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.notification.DurableOutbox", "ERROR", "Failed to acknowledge notification " + key, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Delivery failed: keep the entry pending for the next replay
+    private void release(String key) {
+        lock.lock();
+        try {
+            inFlight.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Append one record and force it to disk before returning
+    private void appendRecord(String record) throws IOException {
+        try (FileChannel channel = FileChannel.open(outboxPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(outboxPath)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(outboxPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+
+                if (parts.length == 4 && parts[0].equals("P")) {
+                    pending.put(parts[1], new PendingNotification(parts[1], decode(parts[2]), decode(parts[3])));
+                } else if (parts.length == 2 && parts[0].equals("A")) {
+                    pending.remove(parts[1]);
+                } else if (!line.isEmpty()) {
+                    // Typically a record torn by a crash mid-write
+                    logErrors.log("bg.paskov.scanner.notification.DurableOutbox", "WARN", "Skipping malformed outbox record", null);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logErrors.log("bg.paskov.scanner.notification.DurableOutbox", "ERROR", "Failed to read notification outbox", e);
+        }
+    }
+
+    // Rewrite the file with the pending entries only
+    private void compact() {
+        lock.lock();
+        try {
+            Path tempPath = outboxPath.resolveSibling(outboxPath.getFileName() + ".tmp");
+
+            try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                for (PendingNotification notification : pending.values()) {
+                    writer.write("P\t" + notification.key() + "\t" + encode(notification.title()) + "\t" + encode(notification.message()) + "\n");
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            AdvertisementJournal.moveAtomically(tempPath, outboxPath);
+            acksSinceCompaction = 0;
+
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.notification.DurableOutbox", "ERROR", "Failed to compact notification outbox", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String encode(String value) {
+        return Base64.getEncoder().encodeToString((value == null ? "" : value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        redeliveryScheduler.shutdownNow();
+    }
+
+    private record PendingNotification(String key, String title, String message) {
+    }
+}
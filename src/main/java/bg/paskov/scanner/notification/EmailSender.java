@@ -1,5 +1,7 @@
 package bg.paskov.scanner.notification;
 
+import bg.paskov.scanner.metrics.ScanMetrics;
+import bg.paskov.scanner.util.CircuitBreaker;
 import bg.paskov.scanner.util.LogErrors;
 import bg.paskov.scanner.util.RetryExecutor;
 import jakarta.mail.*;
@@ -7,8 +9,13 @@ import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
-public class EmailSender implements Notifiable {
+public class EmailSender implements Notifiable, AutoCloseable {
+
+    // Stop hammering SMTP after 5 consecutive failures, try again after 5 minutes
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MILLIS = 5 * 60_000;
 
     private final String fromEmail;
     private final String appPassword;
@@ -16,6 +23,8 @@ public class EmailSender implements Notifiable {
     private final String toEmail;
     private final TypesNotifire typesNotifire;
     private final LogErrors logErrors;
+    private final SmtpTransportPool transportPool;
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("smtp", CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS);
 
     public EmailSender(String fromEmail, String appPassword, String toEmail, TypesNotifire typesNotifire, LogErrors logErrors) {
         this(fromEmail, appPassword, toEmail, typesNotifire, logErrors, createSession(fromEmail, appPassword));
@@ -28,6 +37,8 @@ public class EmailSender implements Notifiable {
         this.typesNotifire = typesNotifire;
         this.logErrors = logErrors;
         this.session = session;
+        this.transportPool = new SmtpTransportPool(session, fromEmail, appPassword,
+                SmtpTransportPool.DEFAULT_SIZE, SmtpTransportPool.DEFAULT_IDLE_TIMEOUT_MILLIS);
     }
 
     // Create and configure a mail session using Gmail SMTP
@@ -51,8 +62,9 @@ public class EmailSender implements Notifiable {
         });
     }
 
+    // Send over a pooled connection instead of connecting, STARTTLS-ing and logging in per message
     void submitToSmtp(Message message) throws MessagingException {
-        Transport.send(message);
+        transportPool.send(message);
     }
 
     // Send a single email message
@@ -65,9 +77,11 @@ public class EmailSender implements Notifiable {
             message.setText(body);
 
             submitToSmtp(message);
+            ScanMetrics.global().recordEmailAttempt(false);
             System.out.println("Email sent!");
 
         } catch (MessagingException e) {
+            ScanMetrics.global().recordEmailAttempt(true);
             System.err.println("[EMAIL ERROR] неуспешно изпращане: " + e.getMessage());
             logErrors.log("bg.paskov.scanner.notification.EmailSender", "ERROR", "Failed to send email", e);
             throw new RuntimeException(e);
@@ -85,6 +99,11 @@ public class EmailSender implements Notifiable {
             return;
         }
 
+        if (typesNotifire == TypesNotifire.ASYNC_RETRY) {
+            sendNotificationAsync(title, message);
+            return;
+        }
+
         // Retry sending with exponential backoff
         RetryExecutor.execute(
                 sendAction,
@@ -96,6 +115,25 @@ public class EmailSender implements Notifiable {
         );
     }
 
+    // Retry sending in the background with decorrelated jitter, failing fast while SMTP is down
+    @Override
+    public CompletableFuture<Void> sendNotificationAsync(String title, String message) {
+        if (typesNotifire != TypesNotifire.ASYNC_RETRY) {
+            return Notifiable.super.sendNotificationAsync(title, message);
+        }
+
+        return RetryExecutor.executeAsync(
+                () -> sendEmail(toEmail, title, message),
+                5,
+                2_000,
+                60_000,
+                circuitBreaker,
+                "bg.paskov.scanner.notification.EmailSender",
+                "Send email",
+                logErrors
+        );
+    }
+
     // Test email configuration by sending a test message
     public void testConnection() throws MessagingException {
         Message message = new MimeMessage(session);
@@ -113,5 +151,9 @@ public class EmailSender implements Notifiable {
         submitToSmtp(message);
     }
 
-
+    // Log out of the pooled SMTP connections
+    @Override
+    public void close() {
+        transportPool.close();
+    }
 }
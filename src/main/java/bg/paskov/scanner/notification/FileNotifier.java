@@ -0,0 +1,66 @@
+package bg.paskov.scanner.notification;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Appends each notification as one JSON object per line (NDJSON) for other tools to pick up
+public class FileNotifier implements Notifiable {
+
+    private final Path filePath;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FileNotifier(Path filePath) {
+        this.filePath = filePath;
+    }
+
+    @Override
+    public void sendNotification(String title, String message) {
+        String line = "{\"time\":\"" + Instant.now() + "\",\"title\":" + jsonString(title)
+                + ",\"message\":" + jsonString(message) + "}";
+
+        lock.lock();
+        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Quote and escape a value as a JSON string
+    public static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -1,5 +1,17 @@
 package bg.paskov.scanner.notification;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface Notifiable {
     void sendNotification(String title, String message);
+
+    // Send without blocking the caller; the future completes once the notification is delivered
+    default CompletableFuture<Void> sendNotificationAsync(String title, String message) {
+        try {
+            sendNotification(title, message);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
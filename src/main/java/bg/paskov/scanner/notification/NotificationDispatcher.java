@@ -0,0 +1,138 @@
+package bg.paskov.scanner.notification;
+
+import bg.paskov.scanner.util.LogErrors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded outbox between scanning and notifying: scanners enqueue, dedicated threads deliver
+public class NotificationDispatcher implements Notifiable, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final Notifiable delegate;
+    private final LogErrors logErrors;
+    private final BlockingQueue<PendingNotification> outbox;
+    private final int threads;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean closed;
+
+    // Delivery latency, measured from enqueue to completed send
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    public NotificationDispatcher(Notifiable delegate, int capacity, int threads, LogErrors logErrors) {
+        this.delegate = delegate;
+        this.logErrors = logErrors;
+        this.outbox = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.threads = Math.max(1, threads);
+    }
+
+    // Start the delivery threads; notifications enqueued before this wait in the outbox
+    public void start() {
+        for (int i = 1; i <= threads; i++) {
+            workers.add(Thread.ofPlatform().daemon().name("notification-dispatcher-" + i).start(this::dispatchLoop));
+        }
+    }
+
+    // Enqueue and return immediately; delivery happens on the dispatcher threads
+    @Override
+    public void sendNotification(String title, String message) {
+        sendNotificationAsync(title, message);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendNotificationAsync(String title, String message) {
+        PendingNotification notification = new PendingNotification(title, message, System.nanoTime(), new CompletableFuture<>());
+
+        if (closed || !outbox.offer(notification)) {
+            IllegalStateException rejected = new IllegalStateException("Notification outbox full or closed");
+            logErrors.log("bg.paskov.scanner.notification.NotificationDispatcher", "ERROR", "Notification dropped: " + title, rejected);
+            failed.incrementAndGet();
+            notification.result().completeExceptionally(rejected);
+        }
+        return notification.result();
+    }
+
+    // Take notifications one by one and wait for each delivery, so a worker has at most one in flight
+    private void dispatchLoop() {
+        while (!closed || !outbox.isEmpty()) {
+            PendingNotification notification;
+            try {
+                notification = outbox.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (notification != null) {
+                dispatch(notification);
+            }
+        }
+    }
+
+    private void dispatch(PendingNotification notification) {
+        try {
+            delegate.sendNotificationAsync(notification.title(), notification.message()).join();
+            recordDelivery(notification);
+            notification.result().complete(null);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            logErrors.log("bg.paskov.scanner.notification.NotificationDispatcher", "ERROR", "Notification failed: " + notification.title(), e);
+            notification.result().completeExceptionally(e);
+        }
+    }
+
+    private void recordDelivery(PendingNotification notification) {
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - notification.enqueuedAt());
+
+        delivered.incrementAndGet();
+        totalLatencyMillis.addAndGet(latencyMillis);
+        maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+
+        System.out.println("Notification delivered in " + latencyMillis + " ms (" + latencySummary() + ")");
+    }
+
+    public int pending() {
+        return outbox.size();
+    }
+
+    public long deliveredCount() {
+        return delivered.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    // Human-readable delivery latency so far, e.g. "3 delivered, avg 850 ms, max 2100 ms"
+    public String latencySummary() {
+        long count = delivered.get();
+        long average = count == 0 ? 0 : totalLatencyMillis.get() / count;
+        return count + " delivered, avg " + average + " ms, max " + maxLatencyMillis.get() + " ms";
+    }
+
+    // Stop accepting notifications and give the queued ones up to the timeout to go out
+    @Override
+    public void close() {
+        closed = true;
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private record PendingNotification(String title, String message, long enqueuedAt, CompletableFuture<Void> result) {
+    }
+}
@@ -0,0 +1,199 @@
+package bg.paskov.scanner.notification;
+
+import bg.paskov.scanner.metrics.SmtpEvent;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// A few long-lived, authenticated SMTP connections reused across messages
+public class SmtpTransportPool implements AutoCloseable {
+
+    public static final int DEFAULT_SIZE = 2;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+
+    // Creates an unconnected transport; a seam so tests do not need a mail server
+    interface TransportFactory {
+        Transport create() throws MessagingException;
+    }
+
+    private final TransportFactory transportFactory;
+    private final String user;
+    private final String password;
+    private final long idleTimeoutNanos;
+    private final BlockingQueue<PooledTransport> idle;
+    private volatile boolean closed;
+
+    public SmtpTransportPool(Session session, String user, String password, int size, long idleTimeoutMillis) {
+        this(() -> session.getTransport("smtp"), user, password, size, idleTimeoutMillis);
+    }
+
+    SmtpTransportPool(TransportFactory transportFactory, String user, String password, int size, long idleTimeoutMillis) {
+        this.transportFactory = transportFactory;
+        this.user = user;
+        this.password = password;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, size));
+
+        // Slots connect lazily on first use
+        for (int i = 0; i < Math.max(1, size); i++) {
+            idle.add(new PooledTransport());
+        }
+    }
+
+    // Send one message over a pooled connection
+    public void send(Message message) throws MessagingException {
+        sendAll(List.of(message));
+    }
+
+    // Send several messages back to back over the same connection
+    public void sendAll(List<? extends Message> messages) throws MessagingException {
+        PooledTransport pooled = borrow();
+        try {
+            dropIfStale(pooled);
+            for (Message message : messages) {
+                sendWithReconnect(pooled, message);
+            }
+        } finally {
+            if (closed) {
+                pooled.disconnect(); // closed while this connection was in use
+            }
+            idle.add(pooled);
+        }
+    }
+
+    // Servers close idle sessions anyway: drop a connection past the idle timeout, and check
+    // the one about to be reused with a NOOP (isConnected) instead of failing the first send
+    private void dropIfStale(PooledTransport pooled) {
+        if (pooled.transport == null) {
+            return;
+        }
+        if (System.nanoTime() - pooled.lastUsed >= idleTimeoutNanos || !pooled.transport.isConnected()) {
+            pooled.disconnect();
+        }
+    }
+
+    // Only a reused connection found closed before MAIL FROM is reopened and resent here.
+    // Connect/AUTH failures and failures during the send go to the caller's retry policy:
+    // logging in twice per attempt can lock the account, and a failure after DATA may
+    // already have delivered the message.
+    private void sendWithReconnect(PooledTransport pooled, Message message) throws MessagingException {
+        message.saveChanges();
+
+        boolean reused = pooled.transport != null;
+        Transport transport = ensureConnected(pooled);
+        try {
+            sendMessage(transport, message);
+        } catch (IllegalStateException e) {
+            // Transport refuses a closed connection before sending any command
+            pooled.disconnect();
+            if (!reused) {
+                throw new MessagingException("SMTP connection closed before sending", e);
+            }
+            sendOrDiscard(pooled, ensureConnected(pooled), message);
+        } catch (SendFailedException e) {
+            throw e; // rejected recipients, not a connection problem
+        } catch (MessagingException e) {
+            pooled.disconnect(); // the session is in an unknown state
+            throw e;
+        }
+        pooled.lastUsed = System.nanoTime();
+    }
+
+    private static void sendOrDiscard(PooledTransport pooled, Transport transport, Message message) throws MessagingException {
+        try {
+            sendMessage(transport, message);
+        } catch (SendFailedException e) {
+            throw e;
+        } catch (MessagingException | IllegalStateException e) {
+            pooled.disconnect();
+            throw e;
+        }
+    }
+
+    // MAIL FROM, RCPT TO and DATA
+    private static void sendMessage(Transport transport, Message message) throws MessagingException {
+        SmtpEvent event = new SmtpEvent();
+        event.begin();
+        Address[] recipients = message.getAllRecipients();
+        boolean sent = false;
+        try {
+            transport.sendMessage(message, recipients);
+            sent = true;
+        } finally {
+            commit(event, "send", recipients == null ? 0 : recipients.length, sent);
+        }
+    }
+
+    private Transport ensureConnected(PooledTransport pooled) throws MessagingException {
+        if (pooled.transport == null) {
+            Transport transport = transportFactory.create();
+
+            // One call does connect, EHLO, STARTTLS and AUTH
+            SmtpEvent event = new SmtpEvent();
+            event.begin();
+            boolean connected = false;
+            try {
+                transport.connect(user, password);
+                connected = true;
+            } finally {
+                commit(event, "connect", 0, connected);
+            }
+
+            pooled.transport = transport;
+            pooled.lastUsed = System.nanoTime();
+        }
+        return pooled.transport;
+    }
+
+    private static void commit(SmtpEvent event, String operation, int recipients, boolean succeeded) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.recipients = recipients;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+    }
+
+    // Disconnect the idle connections now and the ones in use once they are returned
+    @Override
+    public void close() {
+        closed = true;
+        for (PooledTransport pooled : idle) {
+            pooled.disconnect();
+        }
+    }
+
+    private static final class PooledTransport {
+        private Transport transport;
+        private long lastUsed;
+
+        void disconnect() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                transport.close();
+            } catch (MessagingException ignored) {
+                // The connection is being discarded either way
+            }
+            transport = null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package bg.paskov.scanner.notification;
+
+import bg.paskov.scanner.ui.TrayManager;
+
+// Desktop popup through the system tray icon
+public class TrayNotifier implements Notifiable {
+
+    // Popups are cut off by the OS anyway; keep the first few lines
+    static final int MAX_TEXT_LENGTH = 250;
+
+    private final TrayManager trayManager;
+
+    public TrayNotifier(TrayManager trayManager) {
+        this.trayManager = trayManager;
+    }
+
+    @Override
+    public void sendNotification(String title, String message) {
+        String text = message.length() > MAX_TEXT_LENGTH
+                ? message.substring(0, MAX_TEXT_LENGTH - 1) + "…"
+                : message;
+
+        if (!trayManager.displayMessage(title, text.strip())) {
+            throw new IllegalStateException("System tray is not available");
+        }
+    }
+}
@@ -2,5 +2,6 @@ package bg.paskov.scanner.notification;
 
 public enum TypesNotifire {
     WITH_RETRY,
-    NO_RETRY
+    NO_RETRY,
+    ASYNC_RETRY // retries are scheduled in the background, the caller returns immediately
 }
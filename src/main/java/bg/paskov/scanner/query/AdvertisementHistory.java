@@ -0,0 +1,305 @@
+package bg.paskov.scanner.query;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.service.ScanListener;
+import bg.paskov.scanner.util.LogErrors;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Every advertisement the searches have seen, with when and where it was first seen.
+//
+// Entries and indexes are append-only. A single writer appends under a lock and then
+// publishes a new watermark; readers take a snapshot of the watermark and ignore anything
+// after it, so queries are consistent and never wait for a scan.
+//
+// Journal format, one entry per line:
+//   <first seen epoch millis> <id> <base64 search URL> <base64 title>
+public class AdvertisementHistory implements ScanListener {
+
+    private final Path journalPath;
+    private final Clock clock;
+    private final LogErrors logErrors;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Entries in first-seen order; only [0, watermark) is visible to readers
+    private volatile HistoryEntry[] entries = new HistoryEntry[1024];
+    private volatile int watermark;
+
+    private final Map<Long, Integer> positionById = new ConcurrentHashMap<>();
+    private final Map<String, IntList> positionsBySearch = new ConcurrentHashMap<>();
+    private final Map<Long, IntList> positionsByTrigram = new ConcurrentHashMap<>();
+
+    public AdvertisementHistory(Path journalPath, LogErrors logErrors) {
+        this(journalPath, Clock.systemUTC(), logErrors);
+    }
+
+    AdvertisementHistory(Path journalPath, Clock clock, LogErrors logErrors) {
+        this.journalPath = journalPath;
+        this.clock = clock;
+        this.logErrors = logErrors;
+
+        load();
+    }
+
+    // Record the ads a scan just saved; an ID already in the history keeps its first sighting
+    @Override
+    public void advertisementsSaved(String searchUrl, List<Advertisement> advertisements) {
+        writeLock.lock();
+        try {
+            int count = watermark;
+            // Keep first-seen times ordered even if the wall clock steps back
+            Instant now = clock.instant();
+            if (count > 0 && now.isBefore(entries[count - 1].firstSeen())) {
+                now = entries[count - 1].firstSeen();
+            }
+
+            List<HistoryEntry> added = new ArrayList<>();
+            Set<Long> batchIds = new HashSet<>();
+            for (Advertisement advertisement : advertisements) {
+                if (!positionById.containsKey(advertisement.id()) && batchIds.add(advertisement.id())) {
+                    added.add(new HistoryEntry(advertisement.id(), advertisement.title(), searchUrl, now));
+                }
+            }
+            if (added.isEmpty()) {
+                return;
+            }
+
+            append(added);
+            for (HistoryEntry entry : added) {
+                index(entry);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Consistent view of everything recorded so far
+    public Snapshot snapshot() {
+        return new Snapshot(watermark);
+    }
+
+    public int size() {
+        return watermark;
+    }
+
+    // Must be called with the write lock held (or from the constructor)
+    private void index(HistoryEntry entry) {
+        int position = watermark;
+        HistoryEntry[] current = entries;
+        if (position == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            entries = current;
+        }
+        current[position] = entry;
+
+        positionById.put(entry.id(), position);
+        positionsBySearch.computeIfAbsent(entry.searchUrl(), key -> new IntList()).add(position);
+        for (long trigram : trigrams(entry.title())) {
+            positionsByTrigram.computeIfAbsent(trigram, key -> new IntList()).add(position);
+        }
+
+        // Publish last: readers see the entry only once all its index entries are in place
+        watermark = position + 1;
+    }
+
+    private void append(List<HistoryEntry> added) {
+        StringBuilder lines = new StringBuilder();
+        for (HistoryEntry entry : added) {
+            lines.append(entry.firstSeen().toEpochMilli()).append('\t')
+                    .append(entry.id()).append('\t')
+                    .append(encode(entry.searchUrl())).append('\t')
+                    .append(encode(entry.title())).append('\n');
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(lines.toString());
+        } catch (IOException e) {
+            // The seen store is the source of truth; the history is still queryable until restart
+            logErrors.log("bg.paskov.scanner.query.AdvertisementHistory", "ERROR", "Failed to append to history: " + journalPath, e);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4) {
+                    continue; // torn last line after a crash
+                }
+                try {
+                    HistoryEntry entry = new HistoryEntry(Long.parseLong(fields[1]), decode(fields[3]), decode(fields[2]),
+                            Instant.ofEpochMilli(Long.parseLong(fields[0])));
+                    if (!positionById.containsKey(entry.id())) {
+                        index(entry);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Corrupt line: skip it, keep the rest of the history
+                }
+            }
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.query.AdvertisementHistory", "ERROR", "Failed to load history: " + journalPath, e);
+        }
+    }
+
+    // Lower-cased 3-character substrings of a title, packed into one long each
+    static Set<Long> trigrams(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            trigrams.add(((long) lower.charAt(i) << 32) | ((long) lower.charAt(i + 1) << 16) | lower.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    private static String encode(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    // Read-only view up to a fixed watermark
+    public final class Snapshot {
+        private final int limit;
+        private final HistoryEntry[] view;
+
+        private Snapshot(int limit) {
+            this.limit = limit;
+            this.view = entries; // read after the watermark, so it holds every visible entry
+        }
+
+        public int size() {
+            return limit;
+        }
+
+        public Optional<HistoryEntry> byId(long id) {
+            Integer position = positionById.get(id);
+            return position == null || position >= limit ? Optional.empty() : Optional.of(view[position]);
+        }
+
+        // Entries matching every filter of the query, newest first
+        public List<HistoryEntry> query(HistoryQuery query) {
+            String title = query.titleContains() == null ? null : query.titleContains().toLowerCase(Locale.ROOT);
+
+            // First-seen times are ordered, so the time range is a slice of positions
+            int from = query.from() == null ? 0 : firstAtOrAfter(query.from());
+            int to = query.to() == null ? limit : firstAtOrAfter(query.to());
+
+            IntList candidates = null;
+            if (query.searchUrl() != null) {
+                candidates = positionsBySearch.get(query.searchUrl());
+                if (candidates == null) {
+                    return List.of();
+                }
+            }
+            if (title != null && title.length() >= 3) {
+                for (long trigram : trigrams(title)) {
+                    IntList positions = positionsByTrigram.get(trigram);
+                    if (positions == null) {
+                        return List.of();
+                    }
+                    if (candidates == null || positions.size() < candidates.size()) {
+                        candidates = positions;
+                    }
+                }
+            }
+
+            List<HistoryEntry> results = new ArrayList<>();
+            if (candidates == null) {
+                for (int position = to - 1; position >= from && results.size() < query.limit(); position--) {
+                    collect(view[position], query, title, results);
+                }
+                return results;
+            }
+
+            int size = candidates.size();
+            for (int i = size - 1; i >= 0 && results.size() < query.limit(); i--) {
+                int position = candidates.get(i);
+                if (position >= to) {
+                    continue;
+                }
+                if (position < from) {
+                    break;
+                }
+                collect(view[position], query, title, results);
+            }
+            return results;
+        }
+
+        private void collect(HistoryEntry entry, HistoryQuery query, String title, List<HistoryEntry> results) {
+            if (query.searchUrl() != null && !query.searchUrl().equals(entry.searchUrl())) {
+                return;
+            }
+            if (title != null && !entry.title().toLowerCase(Locale.ROOT).contains(title)) {
+                return;
+            }
+            results.add(entry);
+        }
+
+        // Binary search for the first visible position seen at or after the instant
+        private int firstAtOrAfter(Instant instant) {
+            int low = 0;
+            int high = limit;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (view[mid].firstSeen().isBefore(instant)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // Growable int array with a single writer and lock-free readers
+    static final class IntList {
+        private volatile int[] values = new int[4];
+        private volatile int size;
+
+        // Writer only
+        void add(int value) {
+            int[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                values = current;
+            }
+            current[size] = value;
+            size = size + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+    }
+}
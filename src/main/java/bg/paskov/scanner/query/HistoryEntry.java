@@ -0,0 +1,13 @@
+package bg.paskov.scanner.query;
+
+import bg.paskov.scanner.model.Advertisement;
+
+import java.time.Instant;
+
+// An advertisement as first seen by one of the searches
+public record HistoryEntry(long id, String title, String searchUrl, Instant firstSeen) {
+
+    public String link() {
+        return Advertisement.LINK_PREFIX + id;
+    }
+}
@@ -0,0 +1,15 @@
+package bg.paskov.scanner.query;
+
+import java.time.Instant;
+
+// Filters of a history query; null means "any". Results are newest first, at most limit of them.
+public record HistoryQuery(String titleContains, Instant from, Instant to, String searchUrl, int limit) {
+
+    public static final int DEFAULT_LIMIT = 100;
+
+    public HistoryQuery {
+        if (limit <= 0) {
+            limit = DEFAULT_LIMIT;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package bg.paskov.scanner.query;
+
+import bg.paskov.scanner.model.Advertisement;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Roll-up of the observations of one advertisement. Prices are UNKNOWN when no observation showed one.
+public record ListingSummary(long id, Instant firstSeen, Instant lastSeen, long observations,
+                             int minPrice, int maxPrice, int lastPrice) {
+
+    // Time between the first and the last sighting
+    public Duration listedFor() {
+        return Duration.between(firstSeen, lastSeen);
+    }
+
+    // Summary of both periods; the other one must not end before this one starts
+    ListingSummary followedBy(ListingSummary later) {
+        return new ListingSummary(
+                id,
+                firstSeen,
+                later.lastSeen,
+                observations + later.observations,
+                minKnown(minPrice, later.minPrice),
+                Math.max(maxPrice, later.maxPrice),
+                later.lastPrice == Advertisement.UNKNOWN ? lastPrice : later.lastPrice
+        );
+    }
+
+    // Add one later observation
+    ListingSummary followedBy(Observation observation) {
+        return followedBy(of(observation));
+    }
+
+    static ListingSummary of(Observation observation) {
+        return new ListingSummary(observation.id(), observation.time(), observation.time(), 1,
+                observation.price(), observation.price(), observation.price());
+    }
+
+    private static int minKnown(int a, int b) {
+        if (a == Advertisement.UNKNOWN) {
+            return b;
+        }
+        return b == Advertisement.UNKNOWN ? a : Math.min(a, b);
+    }
+}
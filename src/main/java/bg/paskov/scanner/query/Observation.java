@@ -0,0 +1,7 @@
+package bg.paskov.scanner.query;
+
+import java.time.Instant;
+
+// One sighting of an advertisement by a scan
+public record Observation(long id, Instant time, long fingerprint, int price) {
+}
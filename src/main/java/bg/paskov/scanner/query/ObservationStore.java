@@ -0,0 +1,539 @@
+package bg.paskov.scanner.query;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.service.ScanListener;
+import bg.paskov.scanner.storage.AdvertisementJournal;
+import bg.paskov.scanner.util.LogErrors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Time series of sightings: one observation (id, time, fingerprint, price) per ad per scan,
+// kept in one segment per UTC day.
+//
+// Files in the directory:
+//   obs-<yyyy-MM-dd>.log     the current day, appended in time order
+//   obs-<yyyy-MM-dd>.seg     a past day, re-sorted by (id, time) when the day was rolled up
+//   obs-<yyyy-MM-dd>.rollup  per-ad summary of that day, sorted by id
+//
+// Appends only touch the current day. A day is rolled up on the first write of a later day
+// (or at startup), so a lookup by ID is a binary search per day and a lookup by time reads
+// only the days in range. Raw segments older than the retention are deleted; roll-ups stay.
+public class ObservationStore implements ScanListener {
+
+    private static final int MAGIC = 0x4F425356; // "OBSV"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 3 * Long.BYTES + Integer.BYTES;     // id, time, fingerprint, price
+    private static final int ROLLUP_BYTES = 3 * Long.BYTES + 4 * Integer.BYTES; // id, first, last, count, min, max, last price
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final Pattern FILE_NAME = Pattern.compile("obs-(\\d{4}-\\d{2}-\\d{2})\\.(log|seg|rollup)");
+
+    private final Path directory;
+    private final Clock clock;
+    private final int rawRetentionDays;
+    private final LogErrors logErrors;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final NavigableSet<Long> rawDays = new TreeSet<>();      // past epoch days with a .seg
+    private final NavigableSet<Long> rolledUpDays = new TreeSet<>(); // past epoch days with a .rollup
+
+    // The current day's segment, mirrored in memory
+    private long activeDay = Long.MIN_VALUE;
+    private DayRecords active = new DayRecords();
+    private final Map<Long, AdvertisementHistory.IntList> activePositionsById = new HashMap<>();
+
+    // Keeps raw observations forever
+    public ObservationStore(Path directory, LogErrors logErrors) {
+        this(directory, 0, logErrors);
+    }
+
+    // Raw observations older than rawRetentionDays are dropped at roll-up; 0 keeps them
+    public ObservationStore(Path directory, int rawRetentionDays, LogErrors logErrors) {
+        this(directory, Clock.systemUTC(), rawRetentionDays, logErrors);
+    }
+
+    ObservationStore(Path directory, Clock clock, int rawRetentionDays, LogErrors logErrors) {
+        this.directory = directory;
+        this.clock = clock;
+        this.rawRetentionDays = Math.max(0, rawRetentionDays);
+        this.logErrors = logErrors;
+
+        load();
+    }
+
+    @Override
+    public void advertisementsSaved(String searchUrl, List<Advertisement> advertisements) {
+        // Every scanned ad arrives through advertisementsObserved, new ones included
+    }
+
+    // A series with gaps would freeze lastSeen and the prices of ads that are still listed
+    @Override
+    public boolean observesEveryListing() {
+        return true;
+    }
+
+    // Append one observation per advertisement
+    @Override
+    public void advertisementsObserved(String searchUrl, List<Advertisement> advertisements) {
+        if (advertisements.isEmpty()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            long now = clock.millis();
+            // Keep the current day in time order even if the wall clock steps back
+            if (active.count > 0) {
+                now = Math.max(now, active.times[active.count - 1]);
+            }
+            startDay(Math.floorDiv(now, DAY_MILLIS));
+
+            ByteBuffer buffer = ByteBuffer.allocate(advertisements.size() * RECORD_BYTES);
+            for (Advertisement advertisement : advertisements) {
+                buffer.putLong(advertisement.id()).putLong(now).putLong(advertisement.fingerprint()).putInt(advertisement.price());
+            }
+            buffer.flip();
+            try (FileChannel channel = FileChannel.open(path(activeDay, "log"), StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                logErrors.log("bg.paskov.scanner.query.ObservationStore", "ERROR", "Failed to append observations: " + directory, e);
+                return;
+            }
+
+            for (Advertisement advertisement : advertisements) {
+                index(advertisement.id(), now, advertisement.fingerprint(), advertisement.price());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Observations of one advertisement in [from, to), oldest first; null bounds are open
+    public List<Observation> observations(long id, Instant from, Instant to) {
+        long fromMillis = from == null ? Long.MIN_VALUE : from.toEpochMilli();
+        long toMillis = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+        List<Observation> results = new ArrayList<>();
+
+        // Only snapshot under the lock: past days never change once renamed into place,
+        // so reading them must not hold up the scan thread appending to the current day
+        NavigableSet<Long> days;
+        List<Observation> today;
+        lock.lock();
+        try {
+            days = new TreeSet<>(daysIn(rawDays, fromMillis, toMillis));
+            today = activeObservations(id);
+        } finally {
+            lock.unlock();
+        }
+
+        for (long day : days) {
+            try (FileChannel channel = FileChannel.open(path(day, "seg"), StandardOpenOption.READ)) {
+                long count = readHeader(channel, RECORD_BYTES);
+                ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+                for (long i = lowerBound(channel, count, RECORD_BYTES, id); i < count; i++) {
+                    read(channel, HEADER_BYTES + i * RECORD_BYTES, record);
+                    Observation observation = observation(record);
+                    if (observation.id() != id) {
+                        break;
+                    }
+                    addIfInRange(observation, fromMillis, toMillis, results);
+                }
+            } catch (NoSuchFileException e) {
+                // dropped by the raw retention since the snapshot
+            } catch (IOException e) {
+                logErrors.log("bg.paskov.scanner.query.ObservationStore", "ERROR", "Failed to read " + path(day, "seg"), e);
+            }
+        }
+
+        for (Observation observation : today) {
+            addIfInRange(observation, fromMillis, toMillis, results);
+        }
+        return results;
+    }
+
+    // Observations of all advertisements in [from, to), oldest first; null bounds are open
+    public List<Observation> observationsBetween(Instant from, Instant to) {
+        long fromMillis = from == null ? Long.MIN_VALUE : from.toEpochMilli();
+        long toMillis = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+        List<Observation> results = new ArrayList<>();
+
+        NavigableSet<Long> days;
+        List<Observation> today = new ArrayList<>();
+        lock.lock();
+        try {
+            days = new TreeSet<>(daysIn(rawDays, fromMillis, toMillis));
+
+            // The current day is in time order already
+            int start = Arrays.binarySearch(active.times, 0, active.count, fromMillis);
+            start = start < 0 ? -start - 1 : firstAtOrAfter(start, fromMillis);
+            for (int i = start; i < active.count && active.times[i] < toMillis; i++) {
+                today.add(active.observation(i));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (long day : days) {
+            int dayStart = results.size();
+            try {
+                DayRecords records = readSegment(path(day, "seg"), true);
+                for (int i = 0; i < records.count; i++) {
+                    addIfInRange(records.observation(i), fromMillis, toMillis, results);
+                }
+            } catch (NoSuchFileException e) {
+                // dropped by the raw retention since the snapshot
+            } catch (IOException e) {
+                logErrors.log("bg.paskov.scanner.query.ObservationStore", "ERROR", "Failed to read " + path(day, "seg"), e);
+            }
+            // Rolled-up days are sorted by ID; restore time order within the day
+            results.subList(dayStart, results.size()).sort(Comparator.comparing(Observation::time));
+        }
+
+        results.addAll(today);
+        return results;
+    }
+
+    // How long the advertisement has been listed and how its price moved, from the daily roll-ups
+    public Optional<ListingSummary> summary(long id) {
+        ListingSummary summary = null;
+
+        NavigableSet<Long> days;
+        List<Observation> today;
+        lock.lock();
+        try {
+            days = new TreeSet<>(rolledUpDays);
+            today = activeObservations(id);
+        } finally {
+            lock.unlock();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(ROLLUP_BYTES);
+        for (long day : days) {
+            try (FileChannel channel = FileChannel.open(path(day, "rollup"), StandardOpenOption.READ)) {
+                long count = readHeader(channel, ROLLUP_BYTES);
+                long index = lowerBound(channel, count, ROLLUP_BYTES, id);
+                if (index == count) {
+                    continue;
+                }
+                read(channel, HEADER_BYTES + index * ROLLUP_BYTES, record);
+                if (record.getLong(0) == id) {
+                    ListingSummary daily = rollup(record);
+                    summary = summary == null ? daily : summary.followedBy(daily);
+                }
+            } catch (IOException e) {
+                logErrors.log("bg.paskov.scanner.query.ObservationStore", "ERROR", "Failed to read " + path(day, "rollup"), e);
+            }
+        }
+
+        for (Observation observation : today) {
+            summary = summary == null ? ListingSummary.of(observation) : summary.followedBy(observation);
+        }
+        return Optional.ofNullable(summary);
+    }
+
+    // The current day's observations of one advertisement; must be called with the lock held
+    private List<Observation> activeObservations(long id) {
+        List<Observation> observations = new ArrayList<>();
+        AdvertisementHistory.IntList positions = activePositionsById.get(id);
+        if (positions != null) {
+            for (int i = 0; i < positions.size(); i++) {
+                observations.add(active.observation(positions.get(i)));
+            }
+        }
+        return observations;
+    }
+
+    // Must be called with the lock held
+    private void startDay(long day) {
+        if (day == activeDay) {
+            return;
+        }
+
+        if (activeDay != Long.MIN_VALUE && active.count > 0) {
+            try {
+                rollUp(activeDay, active);
+            } catch (IOException e) {
+                // The .log stays and is rolled up again at the next startup
+                logErrors.log("bg.paskov.scanner.query.ObservationStore", "ERROR", "Failed to roll up " + path(activeDay, "log"), e);
+            }
+        }
+        activeDay = day;
+        active = new DayRecords();
+        activePositionsById.clear();
+        dropExpiredRawDays(day);
+    }
+
+    // Must be called with the lock held (or from the constructor)
+    private void index(long id, long time, long fingerprint, int price) {
+        int position = active.add(id, time, fingerprint, price);
+        activePositionsById.computeIfAbsent(id, key -> new AdvertisementHistory.IntList()).add(position);
+    }
+
+    // Write the day's roll-up and its ID-sorted segment, then drop the time-ordered log
+    private void rollUp(long day, DayRecords records) throws IOException {
+        Integer[] order = new Integer[records.count];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Stable sort: observations of one ID stay in time order
+        Arrays.sort(order, Comparator.comparingLong(i -> records.ids[i]));
+
+        List<ListingSummary> summaries = new ArrayList<>();
+        ByteBuffer segment = header(records.count, RECORD_BYTES);
+        for (int i : order) {
+            Observation observation = records.observation(i);
+            segment.putLong(observation.id()).putLong(observation.time().toEpochMilli())
+                    .putLong(observation.fingerprint()).putInt(observation.price());
+
+            int last = summaries.size() - 1;
+            if (last >= 0 && summaries.get(last).id() == observation.id()) {
+                summaries.set(last, summaries.get(last).followedBy(observation));
+            } else {
+                summaries.add(ListingSummary.of(observation));
+            }
+        }
+
+        ByteBuffer rollup = header(summaries.size(), ROLLUP_BYTES);
+        for (ListingSummary summary : summaries) {
+            rollup.putLong(summary.id()).putLong(summary.firstSeen().toEpochMilli()).putLong(summary.lastSeen().toEpochMilli())
+                    .putInt((int) Math.min(Integer.MAX_VALUE, summary.observations()))
+                    .putInt(summary.minPrice()).putInt(summary.maxPrice()).putInt(summary.lastPrice());
+        }
+
+        // Roll-up first, then segment: a .log next to both is left over from a finished roll-up
+        writeAtomically(path(day, "rollup"), rollup);
+        writeAtomically(path(day, "seg"), segment);
+        Files.deleteIfExists(path(day, "log"));
+        rolledUpDays.add(day);
+        rawDays.add(day);
+    }
+
+    private void load() {
+        long today = Math.floorDiv(clock.millis(), DAY_MILLIS);
+
+        try {
+            Files.createDirectories(directory);
+
+            NavigableSet<Long> logDays = new TreeSet<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "obs-*")) {
+                for (Path file : files) {
+                    Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                    if (!matcher.matches()) {
+                        continue;
+                    }
+                    long day = LocalDate.parse(matcher.group(1)).toEpochDay();
+                    switch (matcher.group(2)) {
+                        case "log" -> logDays.add(day);
+                        case "seg" -> rawDays.add(day);
+                        default -> rolledUpDays.add(day);
+                    }
+                }
+            }
+
+            for (long day : logDays) {
+                if (rawDays.contains(day) && rolledUpDays.contains(day)) {
+                    Files.deleteIfExists(path(day, "log")); // crashed after rolling up
+                } else if (day >= today) {
+                    activeDay = day;
+                    active = readSegment(path(day, "log"), false);
+                    truncateTornTail(path(day, "log"), active.count);
+                    for (int i = 0; i < active.count; i++) {
+                        activePositionsById.computeIfAbsent(active.ids[i], key -> new AdvertisementHistory.IntList()).add(i);
+                    }
+                } else {
+                    rollUp(day, readSegment(path(day, "log"), false));
+                }
+            }
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.query.ObservationStore", "ERROR", "Failed to load observations: " + directory, e);
+        }
+
+        dropExpiredRawDays(today);
+    }
+
+    private void dropExpiredRawDays(long today) {
+        if (rawRetentionDays == 0) {
+            return;
+        }
+
+        NavigableSet<Long> expired = rawDays.headSet(today - rawRetentionDays, false);
+        for (long day : new ArrayList<>(expired)) {
+            try {
+                Files.deleteIfExists(path(day, "seg"));
+                rawDays.remove(day);
+            } catch (IOException e) {
+                logErrors.log("bg.paskov.scanner.query.ObservationStore", "WARN", "Failed to delete " + path(day, "seg"), e);
+            }
+        }
+    }
+
+    // Read a .log (no header, torn last record ignored) or a .seg into memory
+    private static DayRecords readSegment(Path path, boolean hasHeader) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (hasHeader) {
+            checkHeader(buffer, path);
+        }
+
+        DayRecords records = new DayRecords();
+        while (buffer.remaining() >= RECORD_BYTES) {
+            records.add(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt());
+        }
+        return records;
+    }
+
+    // Drop a torn trailing write from the current day's log, or later appends would be read misaligned
+    private static void truncateTornTail(Path path, int count) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (channel.size() > (long) count * RECORD_BYTES) {
+                channel.truncate((long) count * RECORD_BYTES);
+            }
+        }
+    }
+
+    private static void checkHeader(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not an observation segment: " + path);
+        }
+        buffer.getLong(); // count
+    }
+
+    // Number of records after a valid header
+    private static long readHeader(FileChannel channel, int recordBytes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        read(channel, 0, header);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not an observation segment");
+        }
+        return Math.min(header.getLong(8), (channel.size() - HEADER_BYTES) / recordBytes);
+    }
+
+    // First record whose leading ID is >= id, in a file of records sorted by ID
+    private static long lowerBound(FileChannel channel, long count, int recordBytes, long id) throws IOException {
+        ByteBuffer key = ByteBuffer.allocate(Long.BYTES);
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            read(channel, HEADER_BYTES + mid * recordBytes, key);
+            if (key.getLong(0) < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void read(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated observation segment");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static ByteBuffer header(int count, int recordBytes) {
+        return ByteBuffer.allocate(HEADER_BYTES + count * recordBytes).putInt(MAGIC).putInt(VERSION).putLong(count);
+    }
+
+    private static void writeAtomically(Path path, ByteBuffer buffer) throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(tempPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        AdvertisementJournal.moveAtomically(tempPath, path);
+    }
+
+    private static Observation observation(ByteBuffer record) {
+        return new Observation(record.getLong(0), Instant.ofEpochMilli(record.getLong(8)), record.getLong(16), record.getInt(24));
+    }
+
+    private static ListingSummary rollup(ByteBuffer record) {
+        return new ListingSummary(record.getLong(0), Instant.ofEpochMilli(record.getLong(8)), Instant.ofEpochMilli(record.getLong(16)),
+                record.getInt(24), record.getInt(28), record.getInt(32), record.getInt(36));
+    }
+
+    private static void addIfInRange(Observation observation, long fromMillis, long toMillis, List<Observation> results) {
+        long time = observation.time().toEpochMilli();
+        if (time >= fromMillis && time < toMillis) {
+            results.add(observation);
+        }
+    }
+
+    // Days that may hold observations in [fromMillis, toMillis)
+    private static NavigableSet<Long> daysIn(NavigableSet<Long> days, long fromMillis, long toMillis) {
+        long fromDay = Math.floorDiv(fromMillis, DAY_MILLIS);
+        long toDay = toMillis == Long.MAX_VALUE ? Long.MAX_VALUE : Math.floorDiv(toMillis - 1, DAY_MILLIS);
+        return fromDay > toDay ? new TreeSet<>() : days.subSet(fromDay, true, toDay, true);
+    }
+
+    // Arrays.binarySearch finds any equal time; step back to the first one
+    private int firstAtOrAfter(int index, long millis) {
+        while (index > 0 && active.times[index - 1] == millis) {
+            index--;
+        }
+        return index;
+    }
+
+    private Path path(long day, String extension) {
+        return directory.resolve("obs-" + LocalDate.ofEpochDay(day) + "." + extension);
+    }
+
+    // Observations of one day in parallel primitive arrays
+    private static final class DayRecords {
+        long[] ids = new long[256];
+        long[] times = new long[256];
+        long[] fingerprints = new long[256];
+        int[] prices = new int[256];
+        int count;
+
+        int add(long id, long time, long fingerprint, int price) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                times = Arrays.copyOf(times, count * 2);
+                fingerprints = Arrays.copyOf(fingerprints, count * 2);
+                prices = Arrays.copyOf(prices, count * 2);
+            }
+            ids[count] = id;
+            times[count] = time;
+            fingerprints[count] = fingerprint;
+            prices[count] = price;
+            return count++;
+        }
+
+        Observation observation(int i) {
+            return new Observation(ids[i], Instant.ofEpochMilli(times[i]), fingerprints[i], prices[i]);
+        }
+    }
+}
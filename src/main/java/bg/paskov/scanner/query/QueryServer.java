@@ -0,0 +1,217 @@
+package bg.paskov.scanner.query;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static bg.paskov.scanner.notification.FileNotifier.jsonString;
+
+// Read-only JSON API over the advertisement history, on http://127.0.0.1:<port>
+//
+//   GET /ads/<id>                                        one advertisement or 404
+//   GET /ads?title=&search=&from=&to=&limit=             newest first; from/to are ISO-8601 instants
+//   GET /ads/<id>/observations?from=&to=                 listing summary and price series, or 404
+public class QueryServer implements AutoCloseable {
+
+    static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final AdvertisementHistory history;
+    private final ObservationStore observations;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public QueryServer(AdvertisementHistory history, int port) throws IOException {
+        this(history, null, port);
+    }
+
+    // Observations may be null when no time series is kept
+    public QueryServer(AdvertisementHistory history, ObservationStore observations, int port) throws IOException {
+        this.history = history;
+        this.observations = observations;
+
+        // Loopback only: the history is for tools on this machine
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/ads", this::handle);
+        server.setExecutor(executor); // queries run concurrently and never block a scan
+        server.start();
+    }
+
+    // Actual port, useful when 0 was requested
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"method not allowed\"}");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/ads") || path.equals("/ads/")) {
+                list(exchange);
+            } else {
+                // "/ads/observations" has no ID and falls through to byId, which answers 400
+                String rest = path.substring("/ads/".length());
+                if (rest.endsWith("/observations")) {
+                    observations(exchange, rest.substring(0, rest.length() - "/observations".length()));
+                } else {
+                    byId(exchange, rest);
+                }
+            }
+        }
+    }
+
+    private void byId(HttpExchange exchange, String idText) throws IOException {
+        long id;
+        try {
+            id = Long.parseLong(idText);
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, "{\"error\":" + jsonString("invalid id: " + idText) + "}");
+            return;
+        }
+
+        Optional<HistoryEntry> entry = history.snapshot().byId(id);
+        if (entry.isEmpty()) {
+            respond(exchange, 404, "{\"error\":\"not found\"}");
+            return;
+        }
+        respond(exchange, 200, toJson(entry.get()));
+    }
+
+    private void observations(HttpExchange exchange, String idText) throws IOException {
+        long id;
+        Instant from;
+        Instant to;
+        try {
+            id = Long.parseLong(idText);
+            Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+            from = instant(parameters.get("from"));
+            to = instant(parameters.get("to"));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            respond(exchange, 400, "{\"error\":" + jsonString(e.getMessage()) + "}");
+            return;
+        }
+
+        Optional<ListingSummary> summary = observations == null ? Optional.empty() : observations.summary(id);
+        if (summary.isEmpty()) {
+            respond(exchange, 404, "{\"error\":\"not found\"}");
+            return;
+        }
+
+        List<Observation> series = observations.observations(id, from, to);
+        StringBuilder json = new StringBuilder("{\"id\":").append(id)
+                .append(",\"summary\":").append(toJson(summary.get()))
+                .append(",\"observations\":[");
+        for (int i = 0; i < series.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            Observation observation = series.get(i);
+            json.append("{\"time\":\"").append(observation.time())
+                    .append("\",\"price\":").append(observation.price())
+                    .append(",\"fingerprint\":\"").append(Long.toHexString(observation.fingerprint())).append("\"}");
+        }
+        respond(exchange, 200, json.append("]}").toString());
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        HistoryQuery query;
+        try {
+            Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+            query = new HistoryQuery(
+                    parameters.get("title"),
+                    instant(parameters.get("from")),
+                    instant(parameters.get("to")),
+                    parameters.get("search"),
+                    parameters.containsKey("limit") ? Integer.parseInt(parameters.get("limit")) : HistoryQuery.DEFAULT_LIMIT
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // NumberFormatException, or a malformed %-escape from URLDecoder
+            respond(exchange, 400, "{\"error\":" + jsonString(e.getMessage()) + "}");
+            return;
+        }
+
+        AdvertisementHistory.Snapshot snapshot = history.snapshot();
+        List<HistoryEntry> results = snapshot.query(query);
+
+        StringBuilder json = new StringBuilder("{\"watermark\":").append(snapshot.size())
+                .append(",\"count\":").append(results.size())
+                .append(",\"items\":[");
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(toJson(results.get(i)));
+        }
+        respond(exchange, 200, json.append("]}").toString());
+    }
+
+    static String toJson(HistoryEntry entry) {
+        return "{\"id\":" + entry.id()
+                + ",\"title\":" + jsonString(entry.title())
+                + ",\"link\":" + jsonString(entry.link())
+                + ",\"search\":" + jsonString(entry.searchUrl())
+                + ",\"firstSeen\":\"" + entry.firstSeen() + "\"}";
+    }
+
+    static String toJson(ListingSummary summary) {
+        return "{\"firstSeen\":\"" + summary.firstSeen()
+                + "\",\"lastSeen\":\"" + summary.lastSeen()
+                + "\",\"listedSeconds\":" + summary.listedFor().toSeconds()
+                + ",\"observations\":" + summary.observations()
+                + ",\"minPrice\":" + summary.minPrice()
+                + ",\"maxPrice\":" + summary.maxPrice()
+                + ",\"lastPrice\":" + summary.lastPrice() + "}";
+    }
+
+    // Decoded query string parameters; the last value wins
+    static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static Instant instant(String value) {
+        return value == null || value.isEmpty() ? null : Instant.parse(value);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+}
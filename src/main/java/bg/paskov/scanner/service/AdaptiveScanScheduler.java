@@ -0,0 +1,98 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.util.LogErrors;
+
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Schedules each search on its own cadence: more often while ads arrive quickly, less when it is quiet
+public class AdaptiveScanScheduler {
+
+    // Aim for about one new ad every two scans: low latency without polling an idle search
+    static final double TARGET_ADS_PER_SCAN = 0.5;
+
+    private final ScannerPool scannerPool;
+    private final ScheduledExecutorService scheduler;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final Clock clock;
+    private final LogErrors logErrors;
+
+    private final Map<String, ArrivalRateEstimator> estimators = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastScanAt = new ConcurrentHashMap<>();
+
+    public AdaptiveScanScheduler(ScannerPool scannerPool, ScheduledExecutorService scheduler, long minIntervalMillis,
+                                 long maxIntervalMillis, LogErrors logErrors) {
+        this(scannerPool, scheduler, minIntervalMillis, maxIntervalMillis, Clock.systemDefaultZone(), logErrors);
+    }
+
+    AdaptiveScanScheduler(ScannerPool scannerPool, ScheduledExecutorService scheduler, long minIntervalMillis,
+                          long maxIntervalMillis, Clock clock, LogErrors logErrors) {
+        this.scannerPool = scannerPool;
+        this.scheduler = scheduler;
+        this.minIntervalMillis = Math.max(1_000, minIntervalMillis);
+        this.maxIntervalMillis = Math.max(this.minIntervalMillis, maxIntervalMillis);
+        this.clock = clock;
+        this.logErrors = logErrors;
+    }
+
+    // Scan every search right away, then keep rescheduling each one on its own
+    public void start() {
+        for (String url : scannerPool.urls()) {
+            schedule(url, 0);
+        }
+    }
+
+    private void schedule(String url, long delayMillis) {
+        // The scheduler only times the scans; each scan runs on a virtual thread
+        Runnable startScan = () -> Thread.ofVirtual().name("scan").start(() -> scanAndReschedule(url));
+        scheduler.schedule(startScan, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void scanAndReschedule(String url) {
+        long nextDelay = maxIntervalMillis;
+
+        try {
+            int newAdvertisements = scannerPool.scan(url);
+            nextDelay = recordScan(url, newAdvertisements);
+            System.out.println("Next scan of " + url + " in " + TimeUnit.MILLISECONDS.toSeconds(nextDelay) + " s");
+        } catch (Exception e) {
+            logErrors.log("bg.paskov.scanner.service.AdaptiveScanScheduler", "ERROR", "Adaptive scan failed: " + url, e);
+        } finally {
+            schedule(url, nextDelay);
+        }
+    }
+
+    // Feed the scan result into the search's arrival rate and return the delay until its next scan
+    long recordScan(String url, int newAdvertisements) {
+        long now = clock.millis();
+        int hour = ZonedDateTime.now(clock).getHour();
+        ArrivalRateEstimator estimator = estimators.computeIfAbsent(url, key -> new ArrivalRateEstimator());
+        Long previous = lastScanAt.put(url, now);
+
+        // The first scan reports the backlog of the search, not its arrival rate
+        if (previous != null) {
+            estimator.observe(newAdvertisements, now - previous, hour);
+        }
+
+        if (estimator.samples() == 0) {
+            return (long) Math.sqrt((double) minIntervalMillis * maxIntervalMillis);
+        }
+
+        return nextInterval(estimator.expectedRatePerHour(hour));
+    }
+
+    // Interval that expects TARGET_ADS_PER_SCAN new ads at the given rate, within the configured bounds
+    long nextInterval(double ratePerHour) {
+        if (ratePerHour <= 0) {
+            return maxIntervalMillis;
+        }
+
+        double intervalMillis = TARGET_ADS_PER_SCAN / ratePerHour * TimeUnit.HOURS.toMillis(1);
+        return Math.max(minIntervalMillis, Math.min(maxIntervalMillis, (long) intervalMillis));
+    }
+}
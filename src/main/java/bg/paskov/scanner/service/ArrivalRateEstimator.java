@@ -0,0 +1,48 @@
+package bg.paskov.scanner.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Smoothed new-ad arrival rate of one search, overall and per hour of day
+public class ArrivalRateEstimator {
+
+    // Weight of the newest observation in the moving averages
+    private static final double SMOOTHING = 0.3;
+
+    private final double[] hourlyRate = new double[24];
+    private final int[] hourlySamples = new int[24];
+    private double overallRate;
+    private int samples;
+
+    // Record the outcome of one scan that covered the given time span
+    public void observe(int newAdvertisements, long elapsedMillis, int hourOfDay) {
+        if (elapsedMillis <= 0) {
+            return;
+        }
+
+        double rate = newAdvertisements / hoursOf(elapsedMillis);
+        overallRate = samples == 0 ? rate : SMOOTHING * rate + (1 - SMOOTHING) * overallRate;
+        samples++;
+
+        int hour = Math.floorMod(hourOfDay, 24);
+        hourlyRate[hour] = hourlySamples[hour] == 0 ? rate : SMOOTHING * rate + (1 - SMOOTHING) * hourlyRate[hour];
+        hourlySamples[hour]++;
+    }
+
+    // Expected ads per hour at the given hour, leaning on the time-of-day pattern once it has data
+    public double expectedRatePerHour(int hourOfDay) {
+        int hour = Math.floorMod(hourOfDay, 24);
+
+        if (hourlySamples[hour] == 0) {
+            return overallRate;
+        }
+        return (hourlyRate[hour] + overallRate) / 2;
+    }
+
+    public int samples() {
+        return samples;
+    }
+
+    private static double hoursOf(long millis) {
+        return millis / (double) TimeUnit.HOURS.toMillis(1);
+    }
+}
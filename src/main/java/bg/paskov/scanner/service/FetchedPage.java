@@ -0,0 +1,111 @@
+package bg.paskov.scanner.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// A downloaded results page whose decompressed body is parsed straight from the network stream
+public class FetchedPage implements Closeable {
+
+    // Enough to find a <meta charset> in the document head
+    private static final int SNIFF_LIMIT = 8192;
+    private static final Pattern META_CHARSET = Pattern.compile("charset\\s*=\\s*[\"']?([\\w-]+)", Pattern.CASE_INSENSITIVE);
+
+    private final String url;
+    private final int statusCode;
+    private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final InputStream body;
+    private final Charset declaredCharset;
+    private final LongSupplier wireBytes;
+
+    public FetchedPage(String url, int statusCode, Map<String, List<String>> headers, InputStream body, Charset declaredCharset) {
+        this(url, statusCode, headers, body, declaredCharset, () -> 0);
+    }
+
+    public FetchedPage(String url, int statusCode, Map<String, List<String>> headers, InputStream body, Charset declaredCharset,
+                       LongSupplier wireBytes) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.headers.putAll(headers);
+        this.body = body.markSupported() ? body : new BufferedInputStream(body, SNIFF_LIMIT);
+        this.declaredCharset = declaredCharset;
+        this.wireBytes = wireBytes;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    // Bytes received for the body so far, before decompression
+    public long wireBytes() {
+        return wireBytes.getAsLong();
+    }
+
+    // First value of a response header, or null
+    public String header(String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    // Parse the whole body into a DOM
+    public Document parse() throws IOException {
+        try (InputStream in = body) {
+            return Jsoup.parse(in, charset().name(), url);
+        }
+    }
+
+    // Parse the body incrementally; closing the parser closes the connection's stream
+    public StreamParser streamParser() throws IOException {
+        return new StreamParser(Parser.htmlParser()).parse(new InputStreamReader(body, charset()), url);
+    }
+
+    // Charset from Content-Type, else from a <meta> tag near the top of the body, else UTF-8
+    Charset charset() throws IOException {
+        if (declaredCharset != null) {
+            return declaredCharset;
+        }
+
+        body.mark(SNIFF_LIMIT);
+        byte[] head = body.readNBytes(SNIFF_LIMIT);
+        body.reset();
+
+        Matcher matcher = META_CHARSET.matcher(new String(head, StandardCharsets.ISO_8859_1));
+        if (matcher.find()) {
+            try {
+                return Charset.forName(matcher.group(1));
+            } catch (IllegalArgumentException ignored) {
+                // Unknown charset name in the page: fall back below
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    // Release the connection without reading the body, e.g. for a 304 or an abandoned prefetch
+    @Override
+    public void close() {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+            // Nothing to release anymore
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package bg.paskov.scanner.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Shared token bucket per host: a steady request rate plus a burst, waited for without blocking a thread
+public class HostRateLimiter {
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final LongSupplier nanoClock;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public HostRateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    HostRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.nanoClock = nanoClock;
+    }
+
+    // No limit at all, for tests and single-page tools
+    public static HostRateLimiter unlimited() {
+        return new HostRateLimiter(0, 1);
+    }
+
+    // Completes when a request to the URL's host may be sent
+    public CompletableFuture<Void> acquire(String url) {
+        long waitNanos = reserve(url);
+
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Completed by the common timer; nothing sits blocked while waiting
+        Executor delayed = CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS, Runnable::run);
+        return CompletableFuture.runAsync(() -> { }, delayed);
+    }
+
+    // Take a token for the URL's host and return how long the caller has to wait for it
+    long reserve(String url) {
+        if (permitsPerSecond <= 0) {
+            return 0;
+        }
+
+        TokenBucket bucket = buckets.computeIfAbsent(ScannerPool.hostOf(url), host -> new TokenBucket());
+        return bucket.reserve();
+    }
+
+    private final class TokenBucket {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        private double tokens = burst;
+        private long refilledAt = nanoClock.getAsLong();
+
+        // Tokens may go negative: each caller reserves the next free slot, which keeps callers in order
+        long reserve() {
+            lock.lock();
+            try {
+                long now = nanoClock.getAsLong();
+                tokens = Math.min(burst, tokens + (now - refilledAt) / (double) nanosPerToken);
+                refilledAt = now;
+
+                tokens -= 1;
+                return tokens >= 0 ? 0 : (long) (-tokens * nanosPerToken);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.metrics.ScanMetrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+// One HttpClient for all scans: connections and TLS sessions are kept alive and reused across pages
+public class HttpPageFetcher {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    public static final long DEFAULT_MAX_BODY_BYTES = 8 * 1024 * 1024; // 8MB
+
+    private static final String USER_AGENT = "Mozilla/5.0"; // simulate a browser
+    private static final Pattern CONTENT_TYPE_CHARSET = Pattern.compile("charset\\s*=\\s*\"?([\\w-]+)", Pattern.CASE_INSENSITIVE);
+
+    private static HttpPageFetcher defaultFetcher;
+
+    // Closes bodies whose download outlives the request timeout; see DeadlineInputStream
+    private static final ScheduledThreadPoolExecutor BODY_DEADLINES = bodyDeadlineScheduler();
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final long maxBodyBytes;
+
+    public HttpPageFetcher(Duration connectTimeout, Duration requestTimeout, long maxBodyBytes) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) // falls back to HTTP/1.1 keep-alive when the server has no h2
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.requestTimeout = requestTimeout;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    // Lazily created fetcher with default settings, shared by scanners that are not given one
+    public static synchronized HttpPageFetcher defaultFetcher() {
+        if (defaultFetcher == null) {
+            defaultFetcher = new HttpPageFetcher(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, DEFAULT_MAX_BODY_BYTES);
+        }
+        return defaultFetcher;
+    }
+
+    // GET the page; the body stays on the wire until the caller parses or closes it.
+    // The request timeout is a budget for the whole download, body included.
+    public FetchedPage fetch(String url, Map<String, String> headers) throws IOException {
+        long start = System.nanoTime();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("User-Agent", USER_AGENT)
+                // Brotli would need a native decoder; gzip gets most of the saving on HTML
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        headers.forEach(request::header);
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + url, e);
+        }
+
+        int statusCode = response.statusCode();
+        if (statusCode >= 400) {
+            response.body().close();
+            throw new IOException("HTTP " + statusCode + " fetching " + url);
+        }
+
+        // HttpRequest.timeout stops at the headers; a server stalling mid-body is cut off here
+        DeadlineInputStream timed = new DeadlineInputStream(response.body(), url, requestTimeout);
+        timed.watch(BODY_DEADLINES, requestTimeout.toNanos() - (System.nanoTime() - start));
+
+        // Count bytes as they come off the wire, before decompression
+        CountingInputStream wire = new CountingInputStream(timed, ScanMetrics.global());
+
+        // A 304 has no body to decompress
+        InputStream body = statusCode == 304
+                ? wire
+                : decode(wire, response.headers().firstValue("Content-Encoding"));
+        return new FetchedPage(
+                url,
+                statusCode,
+                response.headers().map(),
+                new LimitedInputStream(body, maxBodyBytes, url),
+                charsetOf(response.headers().firstValue("Content-Type")),
+                wire::bytes
+        );
+    }
+
+    private static ScheduledThreadPoolExecutor bodyDeadlineScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().daemon().name("http-body-deadline").factory());
+        scheduler.setRemoveOnCancelPolicy(true); // most pages finish long before their deadline
+        return scheduler;
+    }
+
+    // Undo the Content-Encoding the server applied
+    static InputStream decode(InputStream body, Optional<String> contentEncoding) throws IOException {
+        String encoding = contentEncoding.map(String::trim).map(String::toLowerCase).orElse("identity");
+
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(body, 8192);
+            case "deflate" -> new InflaterInputStream(body);
+            default -> body;
+        };
+    }
+
+    // Charset parameter of the Content-Type header, if any (mobile.bg sends windows-1251)
+    static Charset charsetOf(Optional<String> contentType) {
+        if (contentType.isEmpty()) {
+            return null;
+        }
+
+        Matcher matcher = CONTENT_TYPE_CHARSET.matcher(contentType.get());
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return Charset.forName(matcher.group(1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Counts the bytes read for the page and adds them to the downloaded-bytes counter
+    static final class CountingInputStream extends FilterInputStream {
+        private final ScanMetrics metrics;
+        private volatile long bytes;
+
+        CountingInputStream(InputStream in, ScanMetrics metrics) {
+            super(in);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        // Only the reading thread writes the field
+        private void count(int n) {
+            bytes += n;
+            metrics.addBytesDownloaded(n);
+        }
+    }
+
+    // Closes the response body when the deadline passes, which wakes a read blocked on a stalled
+    // server; closing the page first cancels the deadline
+    static final class DeadlineInputStream extends FilterInputStream {
+        private final String url;
+        private final Duration budget;
+        private volatile boolean expired;
+        private volatile ScheduledFuture<?> deadline;
+
+        DeadlineInputStream(InputStream in, String url, Duration budget) {
+            super(in);
+            this.url = url;
+            this.budget = budget;
+        }
+
+        void watch(ScheduledThreadPoolExecutor scheduler, long remainingNanos) {
+            deadline = scheduler.schedule(this::expire, Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw timedOutOr(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                return super.read(buffer, offset, length);
+            } catch (IOException e) {
+                throw timedOutOr(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ScheduledFuture<?> pending = deadline;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            super.close();
+        }
+
+        private void expire() {
+            expired = true;
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // The reader fails with the timeout either way
+            }
+        }
+
+        private IOException timedOutOr(IOException e) {
+            return expired ? new IOException("Timed out after " + budget + " downloading " + url, e) : e;
+        }
+    }
+
+    // Fails the read once more than the allowed number of decompressed bytes came through
+    static final class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private final String url;
+        private long readBytes;
+
+        LimitedInputStream(InputStream in, long maxBytes, String url) {
+            super(in);
+            this.maxBytes = maxBytes;
+            this.url = url;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws IOException {
+            readBytes += n;
+            if (maxBytes > 0 && readBytes > maxBytes) {
+                throw new IOException("Response body of " + url + " exceeds " + maxBytes + " bytes");
+            }
+        }
+    }
+}
@@ -1,177 +1,639 @@
 package bg.paskov.scanner.service;
 
+import bg.paskov.scanner.metrics.PageFetchEvent;
+import bg.paskov.scanner.metrics.ScanEvent;
+import bg.paskov.scanner.metrics.ScanMetrics;
+import bg.paskov.scanner.metrics.ScanPhase;
+import bg.paskov.scanner.metrics.ScanPhaseEvent;
 import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.model.AdvertisementChange;
 import bg.paskov.scanner.notification.Notifiable;
+import bg.paskov.scanner.storage.AdvertisementJournal;
+import bg.paskov.scanner.storage.JournalSeenStore;
+import bg.paskov.scanner.storage.SeenStore;
+import bg.paskov.scanner.util.Hashing;
 import bg.paskov.scanner.util.LogErrors;
-import org.jsoup.Jsoup;
+import bg.paskov.scanner.util.LongHashSet;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.parser.StreamParser;
 import org.jsoup.select.Elements;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class MobileBgScanner implements SiteScanner {
 
-    private final Set<Advertisement> oldAdvertisements = new LinkedHashSet<>();
+    static final String ITEM_QUERY = "div.item:not(.fakti)";
+    private static final Pattern YEAR = Pattern.compile("\\b(19|20)\\d{2}\\b");
+
     private final Set<Advertisement> newAdvertisements = new LinkedHashSet<>();
+    // Known ads that came back different, and known ads whose fingerprint must be (re)recorded
+    private final List<AdvertisementChange> changes = new ArrayList<>();
+    private final List<Advertisement> fingerprintUpdates = new ArrayList<>();
+    private final LongHashSet scannedIds = new LongHashSet();
+    // Every extracted ad, filtered or not, including those read past the crawl end for observers
+    private final List<Advertisement> observedAdvertisements = new ArrayList<>();
+    private boolean observeEveryListing;
+    private boolean crawlComplete; // a known ad was reached; later items are only observed
     private final String url;
     private final Notifiable notifier;
     private boolean hasNewAdvertisements;
+    private int newAdvertisementCount;
     private final LogErrors logErrors;
-    private final Path oldAdvertisementsPath;
+    private final SeenStore seenStore;
+    private final ScanSettings settings;
+    private final HostRateLimiter rateLimiter;
+    private final HttpPageFetcher pageFetcher;
+    private final ExecutorService pageFetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScanMetrics metrics = ScanMetrics.global();
+    private final List<ScanListener> scanListeners = new CopyOnWriteArrayList<>();
+
+    // Validators and content hash of the last committed scan, used to skip unchanged results
+    private String etag;
+    private String lastModified;
+    private Long lastContentHash;
+    private FetchedPage firstPageResponse;
+
+    // Per-scan totals for the JFR scan event
+    private int pagesFetched;
+    private long bytesFetched;
 
 
     public MobileBgScanner(String url, Notifiable notifier, LogErrors logErrors, Path oldAdvertisementsPath) {
+        this(url, notifier, logErrors, oldAdvertisementsPath, ScanSettings.defaults());
+    }
+
+    public MobileBgScanner(String url, Notifiable notifier, LogErrors logErrors, Path oldAdvertisementsPath, ScanSettings settings) {
+        this(url, notifier, logErrors, new JournalSeenStore(new AdvertisementJournal(oldAdvertisementsPath, logErrors)), settings);
+    }
+
+    public MobileBgScanner(String url, Notifiable notifier, LogErrors logErrors, SeenStore seenStore, ScanSettings settings) {
+        this(url, notifier, logErrors, seenStore, settings, HostRateLimiter.unlimited(), HttpPageFetcher.defaultFetcher());
+    }
+
+    public MobileBgScanner(String url, Notifiable notifier, LogErrors logErrors, SeenStore seenStore, ScanSettings settings,
+                           HostRateLimiter rateLimiter, HttpPageFetcher pageFetcher) {
         this.url = url;
         this.notifier = notifier;
         this.logErrors = logErrors;
-        this.oldAdvertisementsPath = oldAdvertisementsPath;
+        this.seenStore = seenStore;
+        this.settings = settings;
+        this.rateLimiter = rateLimiter;
+        this.pageFetcher = pageFetcher;
+    }
+
+    public void addScanListener(ScanListener listener) {
+        scanListeners.add(listener);
+    }
+
+    // Download a single results page; package-private so tests can stub the network
+    FetchedPage fetchPage(String pageUrl) throws IOException {
+        // Pooled connection; the body is decompressed and parsed as it arrives
+        return pageFetcher.fetch(pageUrl, conditionalHeaders(pageUrl));
+    }
+
+    // Start downloading a results page in the background, once the host's rate limit allows it
+    private CompletableFuture<FetchedPage> fetchPageAsync(int page) {
+        String pageUrl = pageUrl(url, page);
+
+        return rateLimiter.acquire(pageUrl).thenApplyAsync(ignored -> {
+            PageFetchEvent event = new PageFetchEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                FetchedPage response = fetchPage(pageUrl);
+                metrics.recordPhase(ScanPhase.DOWNLOAD, start);
+                commitFetchEvent(event, pageUrl, page, response);
+                return response;
+            } catch (IOException e) {
+                commitFetchEvent(event, pageUrl, page, null);
+                logErrors.log("bg.paskov.scanner.service.MobileBgScanner", "Error", "Problem downloading HTML: " + pageUrl, e);
+                System.err.println("[ERROR] Проблем при сваляне на HTML: " + e.getMessage());
+                return null;
+            }
+        }, pageFetchExecutor);
     }
 
-    // Download HTML from the target URL and select relevant advertisement elements
-    private Elements downloadHTML() {
-        Elements elements;
+    private static void commitFetchEvent(PageFetchEvent event, String pageUrl, int page, FetchedPage response) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+
+        event.url = pageUrl;
+        event.page = page;
+        event.failed = response == null;
+        if (response != null) {
+            event.statusCode = response.statusCode();
+            event.contentLength = contentLengthOf(response);
+        }
+        event.commit();
+    }
 
+    private static long contentLengthOf(FetchedPage response) {
+        String contentLength = response.header("Content-Length");
+        if (contentLength == null) {
+            return -1;
+        }
         try {
-            // Using default Jsoup timeout (30s), sufficient for typical scan intervals
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0") // simulate a browser
-                    .get();
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Conditional GET headers for the first page, based on the last committed response; none while
+    // a listener observes every listing
+    Map<String, String> conditionalHeaders(String pageUrl) {
+        Map<String, String> headers = new HashMap<>();
+
+        // A 304 carries no ads to observe; the content hash still skips the diff of unchanged results
+        if (!pageUrl.equals(url) || observeEveryListing) {
+            return headers;
+        }
+        if (etag != null) {
+            headers.put("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            headers.put("If-Modified-Since", lastModified);
+        }
+        return headers;
+    }
+
+    // Build the URL of the given results page, e.g. ".../bmw/p-2?sort=6"
+    static String pageUrl(String url, int page) {
+        if (page <= 1) {
+            return url;
+        }
+
+        int queryStart = url.indexOf('?');
+        String path = queryStart >= 0 ? url.substring(0, queryStart) : url;
+        String query = queryStart >= 0 ? url.substring(queryStart) : "";
 
-            // Select all divs with class "item" excluding "fakti" class
-            elements = doc.select("div.item:not(.fakti)");
-            return elements;
-        } catch (IOException e) {
-            logErrors.log("bg.paskov.scanner.service.MobileBgScanner", "Error", "Problem downloading HTML", e);
-            System.err.println("[ERROR] Проблем при сваляне на HTML: " + e.getMessage());
-            return new Elements();
+        path = path.replaceFirst("/p-\\d+/?$", "");
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
         }
+
+        return path + "/p-" + page + query;
     }
 
-    // Extract advertisements from HTML and populate the newAdvertisements set
-    private void addAdvertisements() {
-        Elements htmlElements = downloadHTML();
+    // How a crawl of the result pages ended
+    private enum CrawlResult {
+        COMPLETE,
+        NOT_MODIFIED, // the first page was not modified since the last scan
+        FAILED        // a page could not be downloaded or read; the results are partial
+    }
 
-        for (Element ad : htmlElements) {
-            Element linkElement = ad.selectFirst(".zaglavie a"); // first link inside ad title
-            if (linkElement != null) {
-                String title = linkElement.text();
-                String link = linkElement.absUrl("href");
-                // Extract numeric ID from the link
-                String id = link.replaceAll(".*obiava-(\\d+).*", "$1");
+    // Crawl result pages, fetching page N+1 while page N is being parsed
+    private CrawlResult addAdvertisements(CompletableFuture<FetchedPage> firstPage) {
+        CompletableFuture<FetchedPage> nextPage = firstPage;
 
-                Advertisement advertisement = new Advertisement(title, link, id);
+        for (int page = 1; page <= settings.maxPages(); page++) {
+            FetchedPage response = nextPage.join();
+            if (response == null) {
+                return CrawlResult.FAILED; // download failed, already logged
+            }
 
-                newAdvertisements.add(advertisement);
+            if (page == 1) {
+                if (response.statusCode() == 304) {
+                    response.close();
+                    return CrawlResult.NOT_MODIFIED;
+                }
+                firstPageResponse = response;
+            }
+
+            nextPage = page < settings.maxPages() ? fetchPageAsync(page + 1) : null;
+
+            ScanPhaseEvent parseEvent = new ScanPhaseEvent();
+            parseEvent.begin();
+            long parseStart = System.nanoTime();
+            int itemsBefore = newAdvertisements.size();
+
+            boolean continueCrawl;
+            try {
+                continueCrawl = extractAdvertisements(response);
+            } catch (IOException e) {
+                logErrors.log("bg.paskov.scanner.service.MobileBgScanner", "Error", "Problem parsing HTML", e);
+                abandon(nextPage);
+                return CrawlResult.FAILED;
+            }
+
+            metrics.recordPhase(ScanPhase.PARSE, parseStart);
+            pagesFetched++;
+            bytesFetched += response.wireBytes();
+            parseEvent.end(url, ScanPhase.PARSE, newAdvertisements.size() - itemsBefore, response.wireBytes());
+
+            if (!continueCrawl) {
+                abandon(nextPage);
+                return CrawlResult.COMPLETE;
             }
         }
+        return CrawlResult.COMPLETE;
     }
 
-    // Load previously scanned advertisements from the CSV file
-    private void loadOldAdvertisements() {
-        if (!Files.exists(oldAdvertisementsPath)) {
-            return;
+    // cancel() would not stop a running fetch, only hide its page; let the prefetch finish
+    // and hand its connection back
+    private static void abandon(CompletableFuture<FetchedPage> prefetch) {
+        if (prefetch != null) {
+            prefetch.whenComplete((abandoned, error) -> {
+                if (abandoned != null) {
+                    abandoned.close();
+                }
+            });
+        }
+    }
+
+    // 64-bit hash of the extracted item list, in page order
+    private long contentHash() {
+        long hash = Hashing.FNV_OFFSET_BASIS;
+        for (Advertisement advertisement : newAdvertisements) {
+            hash = Hashing.fnv1a64(hash, advertisement.id());
+            hash = Hashing.fnv1a64(hash, advertisement.fingerprint());
+        }
+        return hash;
+    }
+
+    // Remember validators and content hash once a scan has been fully processed
+    private void commitScanState(long contentHash) {
+        lastContentHash = contentHash;
+
+        if (firstPageResponse != null) {
+            etag = firstPageResponse.header("ETag");
+            lastModified = firstPageResponse.header("Last-Modified");
+        }
+    }
+
+    // Extract advertisements from one page; returns whether crawling should continue
+    private boolean extractAdvertisements(FetchedPage response) throws IOException {
+        PageExtraction page = new PageExtraction();
+
+        if (settings.streaming()) {
+            try (StreamParser parser = response.streamParser()) {
+                // Newest-first results: everything after a known ad is older, stop reading the body
+                // unless a listener still has to observe it
+                extractStreaming(parser, advertisement -> {
+                    page.accept(advertisement);
+                    if (settings.isPaginated() && page.foundKnown) {
+                        crawlComplete = true;
+                        return observeEveryListing;
+                    }
+                    return true;
+                });
+            }
+        } else {
+            extractFromDocument(response.parse(), page::accept);
+        }
+
+        return page.shouldContinueCrawl();
+    }
+
+    // Build the full DOM and select the advertisement elements from it
+    static void extractFromDocument(Document document, Consumer<Advertisement> sink) {
+        // Select all divs with class "item" excluding "fakti" class
+        Elements htmlElements = document.select(ITEM_QUERY);
+
+        for (Element item : htmlElements) {
+            Advertisement advertisement = toAdvertisement(item);
+            if (advertisement != null) {
+                sink.accept(advertisement);
+            }
+        }
+    }
+
+    // Emit advertisements as their div.item elements are parsed, without keeping the DOM.
+    // Reading stops as soon as the sink returns false.
+    static void extractStreaming(StreamParser parser, Predicate<Advertisement> sink) throws IOException {
+        Element item;
+        while ((item = parser.selectNext(ITEM_QUERY)) != null) {
+            Advertisement advertisement = toAdvertisement(item);
+            item.remove(); // drop the parsed subtree so the document stays small
+
+            if (advertisement != null && !sink.test(advertisement)) {
+                parser.stop();
+                return;
+            }
+        }
+    }
+
+    // Convert a single div.item element into an advertisement, or null if it has no usable title link
+    static Advertisement toAdvertisement(Element item) {
+        Element linkElement = item.selectFirst(".zaglavie a"); // first link inside ad title
+        if (linkElement == null) {
+            return null;
+        }
+
+        // Raw href: no URL resolution or regex needed to find the numeric ID
+        long id = Advertisement.parseId(linkElement.attr("href"));
+        if (id < 0) {
+            return null;
+        }
+
+        Element price = item.selectFirst(".price > div");
+        Element location = item.selectFirst(".location");
+
+        int year = Advertisement.UNKNOWN;
+        int mileage = Advertisement.UNKNOWN;
+        String fuel = null;
+        // Parameters are unlabeled spans, e.g. "септември 2017", "34 000 км", "Дизелов", "262 к.с."
+        for (Element param : item.select(".params > span")) {
+            String text = param.text().trim();
+            if (text.endsWith("км")) {
+                mileage = parseNumber(text);
+            } else if (text.endsWith("к.с.")) {
+                // Power is not a filter field
+            } else if (year == Advertisement.UNKNOWN && parseYear(text) != Advertisement.UNKNOWN) {
+                year = parseYear(text);
+            } else if (fuel == null && !text.isEmpty()) {
+                fuel = text;
+            }
+        }
+
+        return new Advertisement(
+                id,
+                linkElement.text(),
+                price == null ? Advertisement.UNKNOWN : parseNumber(price.text()),
+                year,
+                mileage,
+                fuel,
+                location == null ? null : location.text()
+        );
+    }
+
+    // Four-digit year in a text like "септември 2017", or UNKNOWN
+    static int parseYear(String text) {
+        Matcher matcher = YEAR.matcher(text);
+        return matcher.find() ? Integer.parseInt(matcher.group()) : Advertisement.UNKNOWN;
+    }
+
+    // Digits of a text like "18 400 лв." as a number, or UNKNOWN if it has none (e.g. "По договаряне")
+    static int parseNumber(String text) {
+        long value = 0;
+        boolean found = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = Math.min(Integer.MAX_VALUE, value * 10 + (c - '0'));
+                found = true;
+            }
         }
+        return found ? (int) value : Advertisement.UNKNOWN;
+    }
 
-        try (BufferedReader br = Files.newBufferedReader(oldAdvertisementsPath)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",", 3);
+    // Collects the advertisements of one results page and tracks where crawling should stop
+    private final class PageExtraction {
+        private boolean foundNew;
+        private boolean foundKnown;
 
-                if (parts.length != 3) {
-                    logErrors.log(
-                            "bg.paskov.scanner.service.MobileBgScanner",
-                            "WARN",
-                            "Skipping malformed line in old advertisements file: " + line,
-                            null
-                    );
-                    continue;
+        void accept(Advertisement advertisement) {
+            if (!crawlComplete && isSeen(advertisement)) {
+                foundKnown = true;
+            }
+            // Crawling looks at every item; only ads matching the filter go on to diff and notify
+            if (scannedIds.add(advertisement.id())) {
+                foundNew = true;
+                observedAdvertisements.add(advertisement);
+                if (!crawlComplete && settings.filter().test(advertisement)) {
+                    newAdvertisements.add(advertisement);
                 }
+            }
+        }
+
+        // Results are newest-first, so a known ID means older pages hold nothing new; they are
+        // only read for observers. A page without unseen items means we ran past the last page.
+        boolean shouldContinueCrawl() {
+            if (foundKnown) {
+                crawlComplete = true;
+            }
+            return foundNew && (!crawlComplete || observeEveryListing);
+        }
+    }
+
+    // Look up an advertisement in the resident seen-ID index
+    private boolean isSeen(Advertisement advertisement) {
+        return seenStore.contains(advertisement.id());
+    }
+
+    // Advertisements of the current scan whose IDs are not in the seen store yet
+    static List<Advertisement> unseenAdvertisements(Collection<Advertisement> scanned, SeenStore seenStore) {
+        List<Advertisement> unseen = new ArrayList<>();
+        for (Advertisement advertisement : scanned) {
+            if (!seenStore.contains(advertisement.id())) {
+                unseen.add(advertisement);
+            }
+        }
+        return unseen;
+    }
 
-                oldAdvertisements.add(
-                        new Advertisement(
-                                parts[2], // title
-                                parts[1], // link
-                                parts[0]  // id
-                        )
-                );
+    // Known advertisements whose fingerprint differs from the stored one. Ads stored without a
+    // fingerprint are not reported; they go to fingerprintUpdates so the next scan can compare.
+    static List<AdvertisementChange> changedAdvertisements(Collection<Advertisement> scanned, SeenStore seenStore,
+                                                           List<Advertisement> fingerprintUpdates) {
+        List<AdvertisementChange> changed = new ArrayList<>();
+        for (Advertisement advertisement : scanned) {
+            if (!seenStore.contains(advertisement.id())) {
+                continue;
+            }
+
+            long stored = seenStore.fingerprint(advertisement.id());
+            if (stored == advertisement.fingerprint()) {
+                continue;
+            }
+            fingerprintUpdates.add(advertisement);
+            if (stored != SeenStore.NO_FINGERPRINT) {
+                changed.add(AdvertisementChange.between(stored, advertisement));
             }
-        } catch (IOException e) {
-            logErrors.log(
-                    "bg.paskov.scanner.service.MobileBgScanner",
-                    "ERROR",
-                    "Failed to read old advertisements file",
-                    e
-            );
         }
+        return changed;
     }
 
-    // Compare new advertisements with the old ones and notify about new ads
+    // Compare new advertisements with the old ones and notify about new ads and price drops
     private void compareOldAndNewAdvertisements() {
+        ScanPhaseEvent diffEvent = new ScanPhaseEvent();
+        diffEvent.begin();
+        long diffStart = System.nanoTime();
+        List<Advertisement> unseen = unseenAdvertisements(newAdvertisements, seenStore);
+        changes.addAll(changedAdvertisements(newAdvertisements, seenStore, fingerprintUpdates));
+        metrics.recordPhase(ScanPhase.DIFF, diffStart);
+        diffEvent.end(url, ScanPhase.DIFF, newAdvertisements.size(), 0);
+
         StringBuilder message = new StringBuilder();
-        for (Advertisement advertisement : newAdvertisements) {
-            if (!oldAdvertisements.contains(advertisement)) {
-                // New advertisement detected
-                message.append(advertisement.getTitle())
+        for (Advertisement advertisement : unseen) {
+            // New advertisement detected
+            message.append(advertisement.title())
+                    .append("\n")
+                    .append(advertisement.link())
+                    .append("\n\n");
+
+            hasNewAdvertisements = true;
+            newAdvertisementCount++;
+        }
+
+        StringBuilder priceDrops = new StringBuilder();
+        int priceDropCount = 0;
+        for (AdvertisementChange change : changes) {
+            if (change.type() == AdvertisementChange.Type.PRICE_DROP) {
+                Advertisement advertisement = change.advertisement();
+                priceDrops.append(advertisement.title())
+                        .append("\n")
+                        .append(change.previousPrice()).append(" -> ").append(advertisement.price())
                         .append("\n")
-                        .append(advertisement.getLink())
+                        .append(advertisement.link())
                         .append("\n\n");
-
-                hasNewAdvertisements = true;
+                priceDropCount++;
             }
         }
 
-        if (message.length() > 0) {
-            notifier.sendNotification("New advertisement found", message.toString());
+        if (message.length() > 0 || priceDrops.length() > 0) {
+            ScanPhaseEvent notifyEvent = new ScanPhaseEvent();
+            notifyEvent.begin();
+            long notifyStart = System.nanoTime();
+            if (message.length() > 0) {
+                notifier.sendNotification("New advertisement found", message.toString());
+            }
+            if (priceDrops.length() > 0) {
+                notifier.sendNotification("Price drop", priceDrops.toString());
+            }
+            metrics.recordPhase(ScanPhase.NOTIFY, notifyStart);
+            notifyEvent.end(url, ScanPhase.NOTIFY, newAdvertisementCount + priceDropCount, 0);
         }
     }
 
-    // Save the current set of advertisements as the new "old" file
+    // Append only the advertisements that were not seen before
     private void saveNewAdvertisements() {
-        try (BufferedWriter writer = Files.newBufferedWriter(oldAdvertisementsPath)) {
-            for (Advertisement advertisement : newAdvertisements) {
-                writer.write(
-                        advertisement.getId() + "," +
-                                advertisement.getLink() + "," +
-                                advertisement.getTitle()
-                );
-                writer.newLine();
+        ScanPhaseEvent saveEvent = new ScanPhaseEvent();
+        saveEvent.begin();
+        long saveStart = System.nanoTime();
+        List<Advertisement> unseen = unseenAdvertisements(newAdvertisements, seenStore);
+        seenStore.addAll(unseen);
+        seenStore.updateFingerprints(fingerprintUpdates);
+        metrics.recordPhase(ScanPhase.SAVE, saveStart);
+        saveEvent.end(url, ScanPhase.SAVE, unseen.size() + fingerprintUpdates.size(), 0);
+
+        if (!unseen.isEmpty()) {
+            notifyListeners(listener -> listener.advertisementsSaved(url, unseen));
+        }
+        if (!changes.isEmpty()) {
+            List<AdvertisementChange> changed = List.copyOf(changes);
+            notifyListeners(listener -> listener.advertisementsChanged(url, changed));
+        }
+    }
+
+    // Every ad this scan extracted, for listeners that keep a time series
+    private void notifyObserved() {
+        if (!observedAdvertisements.isEmpty()) {
+            List<Advertisement> observed = List.copyOf(observedAdvertisements);
+            notifyListeners(listener -> listener.advertisementsObserved(url, observed));
+        }
+    }
+
+    private void notifyListeners(Consumer<ScanListener> call) {
+        for (ScanListener listener : scanListeners) {
+            try {
+                call.accept(listener);
+            } catch (RuntimeException e) {
+                // A failing listener must not fail the scan; the ads are already saved
+                logErrors.log("bg.paskov.scanner.service.MobileBgScanner", "ERROR", "Scan listener failed: " + url, e);
             }
-        } catch (IOException e) {
-            logErrors.log(
-                    "bg.paskov.scanner.service.MobileBgScanner",
-                    "ERROR",
-                    "Failed to save advertisements",
-                    e
-            );
         }
     }
 
     @Override
     public void scan() {
         newAdvertisements.clear();
-        oldAdvertisements.clear();
+        changes.clear();
+        fingerprintUpdates.clear();
+        scannedIds.clear();
+        observedAdvertisements.clear();
+        observeEveryListing = scanListeners.stream().anyMatch(ScanListener::observesEveryListing);
+        crawlComplete = false;
         hasNewAdvertisements = false;
+        newAdvertisementCount = 0;
+        firstPageResponse = null;
+        pagesFetched = 0;
+        bytesFetched = 0;
+
+        ScanEvent event = new ScanEvent();
+        event.begin();
+        boolean changed = false;
+        try {
+            changed = scanPages();
+        } finally {
+            metrics.recordScan(newAdvertisements.size(), newAdvertisementCount);
+            metrics.recordChanges(changes.size());
+
+            if (event.shouldCommit()) {
+                event.url = url;
+                event.pages = pagesFetched;
+                event.bytes = bytesFetched;
+                event.adsSeen = newAdvertisements.size();
+                event.adsNew = newAdvertisementCount;
+                event.notModified = !changed;
+                event.commit();
+            }
+        }
+    }
 
-        addAdvertisements();
-        loadOldAdvertisements(); // Read previously stored ads
+    // Returns false when the results did not change since the last scan
+    private boolean scanPages() {
+        // Stops crawling at the first page that contains an already seen ad, unless a listener
+        // observes every listing
+        CrawlResult crawl = addAdvertisements(fetchPageAsync(1));
+        if (crawl == CrawlResult.FAILED) {
+            // Saving part of the results would mark page 1 as seen, and the next scan would stop
+            // there before reaching the ads of the missing pages
+            System.out.println("Scan incomplete, retrying on the next run");
+            return false;
+        }
+        if (crawl == CrawlResult.NOT_MODIFIED) {
+            System.out.println("Search results not modified");
+            printNewAdvertisements();
+            return false;
+        }
+
+        long contentHash = contentHash();
+        if (lastContentHash != null && lastContentHash == contentHash) {
+            // Same items as last time: nothing to diff or save, but they were still listed
+            notifyObserved();
+            printNewAdvertisements();
+            return false;
+        }
+
+        // The alert must be queued before its ads are marked seen, so it cannot be lost
         compareOldAndNewAdvertisements(); // Compare old vs new ads by ID
         saveNewAdvertisements();  // Persist new ads
+        notifyObserved();
+        commitScanState(contentHash);
 
         printNewAdvertisements();
+        return true;
+    }
+
+    @Override
+    public int newAdvertisementCount() {
+        return newAdvertisementCount;
     }
 
     @Override
     public void printNewAdvertisements() {
         if (hasNewAdvertisements) {
             for (Advertisement advertisements : newAdvertisements) {
-                System.out.println("New advertisement: " + advertisements.getId() + ", " + advertisements.getTitle() + ", " + advertisements.getLink());
+                System.out.println("New advertisement: " + advertisements.id() + ", " + advertisements.title() + ", " + advertisements.link());
             }
         } else {
             System.out.println("No new advertisements");
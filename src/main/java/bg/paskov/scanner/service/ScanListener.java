@@ -0,0 +1,28 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.model.AdvertisementChange;
+
+import java.util.List;
+
+// Told about the advertisements a scan has just seen, marked as seen or found changed
+public interface ScanListener {
+
+    // Called on the scanning thread after the seen store was updated; must not block for long
+    void advertisementsSaved(String searchUrl, List<Advertisement> advertisements);
+
+    // Called after advertisementsSaved with known ads whose fingerprint changed since they were last seen
+    default void advertisementsChanged(String searchUrl, List<AdvertisementChange> changes) {
+    }
+
+    // Called once per scan with every advertisement it extracted, new or known, including ads the
+    // filter rejects. Scans stop at the first known ad unless a listener observes every listing.
+    default void advertisementsObserved(String searchUrl, List<Advertisement> advertisements) {
+    }
+
+    // Whether scans should keep reading past the first known ad so that advertisementsObserved
+    // sees every listed ad, at the cost of fetching up to scan.max.pages pages each time
+    default boolean observesEveryListing() {
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.model.Advertisement;
+
+import java.util.function.Predicate;
+
+// Tunables for a single search scan
+public record ScanSettings(int maxPages, boolean streaming, Predicate<Advertisement> filter) {
+
+    public ScanSettings {
+        maxPages = Math.max(1, maxPages);
+        if (filter == null) {
+            filter = advertisement -> true;
+        }
+    }
+
+    public ScanSettings(int maxPages, boolean streaming) {
+        this(maxPages, streaming, null);
+    }
+
+    public ScanSettings(int maxPages) {
+        this(maxPages, false);
+    }
+
+    public static ScanSettings defaults() {
+        return new ScanSettings(1, false);
+    }
+
+    // Paginated crawling assumes results are sorted newest-first
+    public boolean isPaginated() {
+        return maxPages > 1;
+    }
+}
@@ -0,0 +1,124 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.util.LogErrors;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class ScannerPool implements SiteScanner {
+
+    private final Map<String, SiteScanner> scanners = new LinkedHashMap<>();
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final int maxConcurrentPerHost;
+    private final LogErrors logErrors;
+
+    public ScannerPool(int maxConcurrentPerHost, LogErrors logErrors) {
+        this.maxConcurrentPerHost = Math.max(1, maxConcurrentPerHost);
+        this.logErrors = logErrors;
+    }
+
+    // Register a scanner for the given search URL
+    public void addScanner(String url, SiteScanner scanner) {
+        scanners.put(url, scanner);
+    }
+
+    public int size() {
+        return scanners.size();
+    }
+
+    public Set<String> urls() {
+        return Collections.unmodifiableSet(scanners.keySet());
+    }
+
+    // Scan a single registered URL under its host limit; returns the number of new ads found
+    public int scan(String url) {
+        SiteScanner scanner = scanners.get(url);
+        if (scanner == null) {
+            return 0;
+        }
+
+        scanLimited(url, scanner);
+        return scanner.newAdvertisementCount();
+    }
+
+    // Run one scan per URL concurrently, each on its own virtual thread
+    @Override
+    public void scan() {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (Map.Entry<String, SiteScanner> entry : scanners.entrySet()) {
+                futures.add(executor.submit(() -> scanLimited(entry.getKey(), entry.getValue())));
+            }
+
+            for (Future<?> future : futures) {
+                awaitScan(future);
+            }
+            // Download and diff only; notification delivery is reported by the dispatcher
+            System.out.println("Scanned " + scanners.size() + " searches in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+    }
+
+    // Scan a single URL while holding one of its host's permits
+    void scanLimited(String url, SiteScanner scanner) {
+        Semaphore permits = hostPermits.computeIfAbsent(hostOf(url), host -> new Semaphore(maxConcurrentPerHost));
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logErrors.log("bg.paskov.scanner.service.ScannerPool", "WARN", "Scan interrupted: " + url, e);
+            return;
+        }
+
+        try {
+            scanner.scan();
+        } catch (Exception e) {
+            // One failing search must not abort the others
+            logErrors.log("bg.paskov.scanner.service.ScannerPool", "ERROR", "Scan failed: " + url, e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void awaitScan(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logErrors.log("bg.paskov.scanner.service.ScannerPool", "ERROR", "Scan task failed", e);
+        }
+    }
+
+    // Extract the host part of a URL, falling back to the URL itself
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host != null ? host.toLowerCase() : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    @Override
+    public void printNewAdvertisements() {
+        for (SiteScanner scanner : scanners.values()) {
+            scanner.printNewAdvertisements();
+        }
+    }
+}
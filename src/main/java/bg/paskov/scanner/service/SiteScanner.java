@@ -4,4 +4,9 @@ public interface SiteScanner {
     void scan();
 
     void printNewAdvertisements();
+
+    // Number of unseen advertisements found by the last scan, used to adapt the polling rate
+    default int newAdvertisementCount() {
+        return 0;
+    }
 }
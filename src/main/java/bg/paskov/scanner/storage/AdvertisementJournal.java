@@ -0,0 +1,272 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import bg.paskov.scanner.util.LongHashSet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Append-only "id,link,title" journal of seen advertisements, compacted in the background
+public class AdvertisementJournal {
+
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024; // 1MB
+
+    private final Path journalPath;
+    private final LogErrors logErrors;
+    private final long compactionThreshold;
+    private final int maxEntries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile long nextCompactionSize;
+    private volatile Consumer<LongHashSet> trimListener = keptIds -> { };
+
+    public AdvertisementJournal(Path journalPath, LogErrors logErrors) {
+        this(journalPath, logErrors, DEFAULT_COMPACTION_THRESHOLD, 0);
+    }
+
+    // maxEntries <= 0 keeps the whole history
+    public AdvertisementJournal(Path journalPath, LogErrors logErrors, long compactionThreshold, int maxEntries) {
+        this.journalPath = journalPath;
+        this.logErrors = logErrors;
+        this.compactionThreshold = compactionThreshold;
+        this.maxEntries = maxEntries;
+        this.nextCompactionSize = compactionThreshold;
+    }
+
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    LogErrors logErrors() {
+        return logErrors;
+    }
+
+    // Told the IDs that remain after a compaction dropped entries beyond maxEntries, so data kept
+    // next to the journal can be trimmed in the same compaction. Runs with the journal locked.
+    void setTrimListener(Consumer<LongHashSet> trimListener) {
+        this.trimListener = trimListener;
+    }
+
+    // Read every entry of the journal; later entries for the same ID win
+    public Set<Advertisement> load() {
+        lock.lock();
+        try {
+            return new LinkedHashSet<>(readEntries().byId().values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Append newly seen advertisements without touching existing entries
+    public void append(Collection<Advertisement> advertisements) {
+        if (advertisements.isEmpty()) {
+            return;
+        }
+
+        lock.lock();
+        try (BufferedWriter writer = Files.newBufferedWriter(
+                journalPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND
+        )) {
+            // A crash may have left the last line unterminated
+            if (!endsWithNewline()) {
+                writer.newLine();
+            }
+
+            for (Advertisement advertisement : advertisements) {
+                writer.write(toLine(advertisement));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logErrors.log(
+                    "bg.paskov.scanner.storage.AdvertisementJournal",
+                    "ERROR",
+                    "Failed to append to advertisements journal",
+                    e
+            );
+            return;
+        } finally {
+            lock.unlock();
+        }
+
+        compactInBackgroundIfNeeded();
+    }
+
+    // Start a compaction on a virtual thread once the journal outgrows the threshold
+    private void compactInBackgroundIfNeeded() {
+        try {
+            if (Files.size(journalPath) < nextCompactionSize) {
+                return;
+            }
+        } catch (IOException e) {
+            return;
+        }
+
+        if (compacting.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("journal-compaction").start(() -> {
+                try {
+                    compact();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    // Rewrite the journal with one line per ID and atomically replace the old file.
+    // A journal without duplicate, malformed or excess lines is left as it is.
+    public void compact() {
+        lock.lock();
+        try {
+            Entries entries = readEntries();
+            int skip = maxEntries > 0 ? Math.max(0, entries.byId().size() - maxEntries) : 0;
+            boolean trimmed = skip > 0;
+
+            if (entries.lines() == entries.byId().size() && !trimmed) {
+                // Nothing to drop: wait for the file to double before reading it again
+                if (Files.exists(journalPath)) {
+                    nextCompactionSize = Math.max(compactionThreshold, Files.size(journalPath) * 2);
+                }
+                return;
+            }
+
+            Path tempPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+            LongHashSet keptIds = new LongHashSet(entries.byId().size() - skip);
+
+            try (BufferedWriter writer = Files.newBufferedWriter(tempPath)) {
+                for (Advertisement advertisement : entries.byId().values()) {
+                    if (skip > 0) {
+                        skip--; // drop the oldest entries beyond the retention limit
+                        continue;
+                    }
+                    writer.write(toLine(advertisement));
+                    writer.newLine();
+                    keptIds.add(advertisement.id());
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                channel.force(true); // make sure the data is on disk before the rename
+            }
+
+            moveAtomically(tempPath, journalPath);
+            if (trimmed) {
+                trimListener.accept(keptIds);
+            }
+
+            // Grow geometrically so an append-only history is not rewritten on every scan
+            nextCompactionSize = Math.max(compactionThreshold, Files.size(journalPath) * 2);
+
+        } catch (IOException e) {
+            logErrors.log(
+                    "bg.paskov.scanner.storage.AdvertisementJournal",
+                    "ERROR",
+                    "Failed to compact advertisements journal",
+                    e
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Latest entry per ID, plus the number of non-empty lines they were read from
+    private record Entries(Map<Long, Advertisement> byId, int lines) {
+    }
+
+    private Entries readEntries() {
+        Map<Long, Advertisement> entries = new LinkedHashMap<>();
+        int lines = 0;
+
+        if (!Files.exists(journalPath)) {
+            return new Entries(entries, lines);
+        }
+
+        try (BufferedReader br = Files.newBufferedReader(journalPath)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                lines++;
+
+                String[] parts = line.split(",", 3);
+
+                if (parts.length != 3) {
+                    logErrors.log(
+                            "bg.paskov.scanner.storage.AdvertisementJournal",
+                            "WARN",
+                            "Skipping malformed line in advertisements journal: " + line,
+                            null
+                    );
+                    continue;
+                }
+
+                long id;
+                try {
+                    id = Long.parseLong(parts[0]);
+                } catch (NumberFormatException e) {
+                    logErrors.log(
+                            "bg.paskov.scanner.storage.AdvertisementJournal",
+                            "WARN",
+                            "Skipping non-numeric advertisement ID: " + parts[0],
+                            null
+                    );
+                    continue;
+                }
+
+                // Re-insert so the latest entry moves to the end; the link is derived from the ID
+                entries.remove(id);
+                entries.put(id, new Advertisement(id, parts[2]));
+            }
+        } catch (IOException e) {
+            logErrors.log(
+                    "bg.paskov.scanner.storage.AdvertisementJournal",
+                    "ERROR",
+                    "Failed to read advertisements journal",
+                    e
+            );
+        }
+        return new Entries(entries, lines);
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(journalPath.toFile(), "r")) {
+            if (file.length() == 0) {
+                return true;
+            }
+            file.seek(file.length() - 1);
+            return file.read() == '\n';
+        }
+    }
+
+    // Replace the target with a fully written temp file, atomically where the file system allows it
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String toLine(Advertisement advertisement) {
+        return advertisement.id() + "," + advertisement.link() + "," + advertisement.title();
+    }
+}
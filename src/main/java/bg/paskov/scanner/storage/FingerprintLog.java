@@ -0,0 +1,155 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import bg.paskov.scanner.util.LongHashSet;
+import bg.paskov.scanner.util.LongLongHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Latest fingerprint of each seen advertisement: a resident id -> fingerprint map backed by
+// an append-only file of 16-byte (id, fingerprint) records. Later records win; the file is
+// rewritten with one record per ID once it holds mostly superseded ones.
+public class FingerprintLog {
+
+    private static final int RECORD_BYTES = 2 * Long.BYTES;
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 1024;
+
+    private final Path path;
+    private final LogErrors logErrors;
+    private final ReentrantLock lock = new ReentrantLock();
+    private LongLongHashMap fingerprints = new LongLongHashMap(); // guarded by lock
+    private long records;
+
+    public FingerprintLog(Path path, LogErrors logErrors) {
+        this.path = path;
+        this.logErrors = logErrors;
+
+        load();
+    }
+
+    // Stored fingerprint, or SeenStore.NO_FINGERPRINT
+    public long get(long id) {
+        lock.lock();
+        try {
+            return fingerprints.get(id, SeenStore.NO_FINGERPRINT);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Record the current fingerprints; unchanged ones are not written again
+    public void putAll(Collection<Advertisement> advertisements) {
+        lock.lock();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(advertisements.size() * RECORD_BYTES);
+            for (Advertisement advertisement : advertisements) {
+                long fingerprint = advertisement.fingerprint();
+                if (fingerprints.get(advertisement.id(), SeenStore.NO_FINGERPRINT) != fingerprint) {
+                    buffer.putLong(advertisement.id()).putLong(fingerprint);
+                }
+            }
+            if (buffer.position() == 0) {
+                return;
+            }
+            buffer.flip();
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                fingerprints.put(buffer.getLong(), buffer.getLong(), SeenStore.NO_FINGERPRINT);
+                records++;
+            }
+
+            if (records > MIN_RECORDS_BEFORE_COMPACTION && records > 2L * fingerprints.size()) {
+                compact();
+            }
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.storage.FingerprintLog", "ERROR", "Failed to append fingerprints: " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forget the fingerprints of IDs that are no longer kept and rewrite the file
+    public void retainAll(LongHashSet keptIds) {
+        lock.lock();
+        try {
+            LongLongHashMap kept = new LongLongHashMap(keptIds.size());
+            fingerprints.forEach((id, fingerprint) -> {
+                if (keptIds.contains(id)) {
+                    kept.put(id, fingerprint, SeenStore.NO_FINGERPRINT);
+                }
+            });
+            fingerprints = kept;
+            compact();
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.storage.FingerprintLog", "ERROR", "Failed to trim fingerprints: " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return fingerprints.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must be called with the lock held
+    private void compact() throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(fingerprints.size() * RECORD_BYTES);
+        fingerprints.forEach((id, fingerprint) -> buffer.putLong(id).putLong(fingerprint));
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(tempPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        AdvertisementJournal.moveAtomically(tempPath, path);
+        records = fingerprints.size();
+    }
+
+    private void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            while (buffer.remaining() >= RECORD_BYTES) {
+                fingerprints.put(buffer.getLong(), buffer.getLong(), SeenStore.NO_FINGERPRINT);
+                records++;
+            }
+
+            if (buffer.hasRemaining()) {
+                // Drop a torn trailing write, or later appends would be read misaligned
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(records * RECORD_BYTES);
+                }
+            }
+        } catch (IOException e) {
+            logErrors.log("bg.paskov.scanner.storage.FingerprintLog", "ERROR", "Failed to load fingerprints: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LongHashSet;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Resident ID index warmed once from the journal and updated incrementally after each scan.
+// Fingerprints live in a binary sidecar next to the journal (old.csv.fp), so the CSV stays
+// readable and files written by older versions load unchanged.
+public class JournalSeenStore implements SeenStore {
+
+    private final AdvertisementJournal journal;
+    private final FingerprintLog fingerprints;
+    private final LongHashSet seenIds;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public JournalSeenStore(AdvertisementJournal journal) {
+        this.journal = journal;
+        this.fingerprints = new FingerprintLog(fingerprintPath(journal.getJournalPath()), journal.logErrors());
+        journal.setTrimListener(fingerprints::retainAll);
+
+        Collection<Advertisement> history = journal.load();
+        this.seenIds = new LongHashSet(history.size());
+        for (Advertisement advertisement : history) {
+            index(advertisement);
+        }
+    }
+
+    @Override
+    public boolean contains(long id) {
+        lock.lock();
+        try {
+            return seenIds.contains(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addAll(Collection<Advertisement> advertisements) {
+        journal.append(advertisements);
+        fingerprints.putAll(advertisements);
+
+        lock.lock();
+        try {
+            for (Advertisement advertisement : advertisements) {
+                index(advertisement);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long fingerprint(long id) {
+        return fingerprints.get(id);
+    }
+
+    @Override
+    public void updateFingerprints(Collection<Advertisement> advertisements) {
+        fingerprints.putAll(advertisements);
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return seenIds.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static Path fingerprintPath(Path journalPath) {
+        return journalPath.resolveSibling(journalPath.getFileName() + ".fp");
+    }
+
+    private void index(Advertisement advertisement) {
+        seenIds.add(advertisement.id());
+    }
+}
@@ -0,0 +1,702 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import bg.paskov.scanner.util.LongHashSet;
+import bg.paskov.scanner.util.LongLongHashMap;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Seen-ID store for very large histories: a memory-mapped file of sorted IDs plus small
+// append-only delta segments that are merged into a new base file in the background.
+// Each ID's fingerprint is stored next to it, so startup still parses nothing but the deltas.
+//
+// Files next to the given prefix, e.g. for "old.ids":
+//   old.ids.base-<generation>  header (magic, version, count), sorted IDs, then their fingerprints
+//                              in the same order (version 1 files have no fingerprints)
+//   old.ids.records-<sequence> (id, fingerprint) records appended as ads are seen or change
+//   old.ids.delta-<sequence>   raw IDs written before fingerprints were kept; read-only
+//
+// Every merge writes a new generation instead of replacing the mapped file, because a
+// mapped file cannot be replaced or deleted on Windows while it is still mapped.
+public class MappedSeenStore implements SeenStore, AutoCloseable {
+
+    public static final int DEFAULT_MERGE_THRESHOLD = 50_000;
+
+    private static final int MAGIC = 0x5345454E; // "SEEN"
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_FINGERPRINTS = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 2 * Long.BYTES;
+
+    private final Path prefix;
+    private final LogErrors logErrors;
+    private final int mergeThreshold;
+    private final boolean bloomFilterEnabled;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean merging = new AtomicBoolean();
+    private final ReentrantLock mergeLock = new ReentrantLock(); // one merge writes a generation at a time
+
+    private volatile Base base;
+    private final List<Segment> segments = new ArrayList<>(); // guarded by lock
+    private long nextSegmentSequence;
+    private volatile Thread bloomBuilder;
+    private volatile Thread merger;
+
+    public static MappedSeenStore open(Path prefix, LogErrors logErrors) {
+        return open(prefix, logErrors, DEFAULT_MERGE_THRESHOLD, true);
+    }
+
+    // Map the latest base and replay the segments; filter building and merging continue in the background
+    public static MappedSeenStore open(Path prefix, LogErrors logErrors, int mergeThreshold, boolean bloomFilterEnabled) {
+        MappedSeenStore store = new MappedSeenStore(prefix, logErrors, mergeThreshold, bloomFilterEnabled);
+        store.startBackgroundWork();
+        return store;
+    }
+
+    private MappedSeenStore(Path prefix, LogErrors logErrors, int mergeThreshold, boolean bloomFilterEnabled) {
+        this.prefix = prefix;
+        this.logErrors = logErrors;
+        this.mergeThreshold = Math.max(1, mergeThreshold);
+        this.bloomFilterEnabled = bloomFilterEnabled;
+
+        try {
+            this.base = openLatestBase();
+            loadSegments();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open seen-ID store " + prefix, e);
+        }
+    }
+
+    private void startBackgroundWork() {
+        if (bloomFilterEnabled && base.count > 0) {
+            // Build the filter off the startup path; lookups fall back to binary search meanwhile
+            Base current = base;
+            bloomBuilder = Thread.ofVirtual().name("seen-store-bloom").start(() -> current.bloom = BloomFilter.of(current));
+        }
+
+        mergeInBackgroundIfNeeded();
+    }
+
+    @Override
+    public boolean contains(long id) {
+        // Segments first: a merge publishes the new base before it drops the merged segments
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                if (segment.ids.contains(id)) {
+                    return true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return base.contains(id);
+    }
+
+    @Override
+    public void addAll(Collection<Advertisement> advertisements) {
+        append(advertisements, Advertisement::fingerprint, true);
+    }
+
+    @Override
+    public long fingerprint(long id) {
+        // Newest segment first; NO_FINGERPRINT is only written for IDs that had none before
+        lock.lock();
+        try {
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                long fingerprint = segments.get(i).fingerprints.get(id, NO_FINGERPRINT);
+                if (fingerprint != NO_FINGERPRINT) {
+                    return fingerprint;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return base.fingerprint(id);
+    }
+
+    @Override
+    public void updateFingerprints(Collection<Advertisement> advertisements) {
+        append(advertisements, Advertisement::fingerprint, false);
+    }
+
+    // Append records for unknown IDs (when addUnknown) and for stored IDs whose fingerprint changed
+    private void append(Collection<Advertisement> advertisements, ToLongFunction<Advertisement> fingerprintOf,
+                        boolean addUnknown) {
+        lock.lock();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(advertisements.size() * RECORD_BYTES);
+            LongHashSet unknownIds = new LongHashSet();
+            for (Advertisement advertisement : advertisements) {
+                long id = advertisement.id();
+                long fingerprint = fingerprintOf.applyAsLong(advertisement);
+                if (contains(id)) {
+                    if (fingerprint == NO_FINGERPRINT || fingerprint(id) == fingerprint) {
+                        continue;
+                    }
+                } else if (addUnknown) {
+                    unknownIds.add(id);
+                } else {
+                    continue;
+                }
+                buffer.putLong(id).putLong(fingerprint);
+            }
+            buffer.flip();
+
+            if (!buffer.hasRemaining()) {
+                return;
+            }
+
+            Segment active = activeSegment();
+            try (FileChannel channel = FileChannel.open(active.path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                long id = buffer.getLong();
+                long fingerprint = buffer.getLong();
+                active.fingerprints.put(id, fingerprint, NO_FINGERPRINT);
+                if (unknownIds.contains(id)) {
+                    active.ids.add(id);
+                }
+            }
+        } catch (IOException e) {
+            logErrors.log(
+                    "bg.paskov.scanner.storage.MappedSeenStore",
+                    "ERROR",
+                    "Failed to append to seen-ID delta segment",
+                    e
+            );
+            return;
+        } finally {
+            lock.unlock();
+        }
+
+        mergeInBackgroundIfNeeded();
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            long total = base.count;
+            for (Segment segment : segments) {
+                total += segment.ids.size();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, total);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Import the IDs of a CSV journal, e.g. to migrate an existing old.csv. The CSV holds
+    // titles only, so no fingerprints are recorded: the next scan records the full ones.
+    public void importCsv(Path csvPath) {
+        Collection<Advertisement> advertisements = new AdvertisementJournal(csvPath, logErrors).load();
+        append(advertisements, advertisement -> NO_FINGERPRINT, true);
+        merge();
+    }
+
+    // Export all IDs as an "id,link," CSV journal; titles are not kept in the binary store
+    public void exportCsv(Path csvPath) throws IOException {
+        long[] ids = snapshot().ids();
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csvPath)) {
+            for (long id : ids) {
+                Advertisement advertisement = new Advertisement(id, "");
+                writer.write(advertisement.id() + "," + advertisement.link() + ",");
+                writer.newLine();
+            }
+        }
+    }
+
+    // Wait for the background Bloom-filter build and merge, so no work outlives the store
+    @Override
+    public void close() {
+        try {
+            for (Thread worker : new Thread[]{bloomBuilder, merger}) {
+                if (worker != null) {
+                    worker.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Merge delta segments into a new base generation when enough records have accumulated
+    private void mergeInBackgroundIfNeeded() {
+        lock.lock();
+        try {
+            long pending = 0;
+            for (Segment segment : segments) {
+                pending += segment.fingerprints.size();
+            }
+            if (pending < mergeThreshold) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (merging.compareAndSet(false, true)) {
+            merger = Thread.ofVirtual().name("seen-store-merge").start(() -> {
+                try {
+                    merge();
+                } finally {
+                    merging.set(false);
+                }
+            });
+        }
+    }
+
+    // Write base + sealed segments as the next generation and switch lookups to it
+    void merge() {
+        mergeLock.lock();
+        try {
+            mergeSealedSegments();
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    private void mergeSealedSegments() {
+        List<Segment> sealed;
+        lock.lock();
+        try {
+            sealed = new ArrayList<>(segments);
+            for (Segment segment : sealed) {
+                segment.sealed = true; // new IDs go to a fresh segment from now on
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (sealed.isEmpty()) {
+            return;
+        }
+
+        try {
+            Base current = base;
+            Merged merged = mergeSorted(current, sealed);
+            Path nextPath = basePath(current.generation + 1);
+            writeBase(nextPath, merged);
+
+            Base next = Base.open(nextPath, current.generation + 1);
+            if (bloomFilterEnabled) {
+                next.bloom = BloomFilter.of(next);
+            }
+
+            lock.lock();
+            try {
+                base = next;
+                segments.removeAll(sealed);
+            } finally {
+                lock.unlock();
+            }
+
+            for (Segment segment : sealed) {
+                Files.deleteIfExists(segment.path);
+            }
+            deleteQuietly(current.path);
+
+        } catch (IOException e) {
+            logErrors.log(
+                    "bg.paskov.scanner.storage.MappedSeenStore",
+                    "ERROR",
+                    "Failed to merge seen-ID segments",
+                    e
+            );
+        }
+    }
+
+    private Merged snapshot() {
+        List<Segment> current;
+        lock.lock();
+        try {
+            current = new ArrayList<>(segments);
+            return mergeSorted(base, current);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sorted IDs and the fingerprint at the same index
+    private record Merged(long[] ids, long[] fingerprints) {
+    }
+
+    // Merge the sorted base with the (unsorted) segment records; later segments win
+    private static Merged mergeSorted(Base current, List<Segment> sealed) {
+        LongLongHashMap latest = new LongLongHashMap();
+        for (Segment segment : sealed) {
+            segment.fingerprints.forEach((id, fingerprint) -> latest.put(id, fingerprint, NO_FINGERPRINT));
+        }
+
+        long[] delta = latest.keys();
+        int n = 0;
+        for (long id : delta) {
+            if (!current.binarySearch(id)) {
+                delta[n++] = id;
+            }
+        }
+        Arrays.sort(delta, 0, n);
+
+        long[] ids = new long[current.count + n];
+        long[] fingerprints = new long[ids.length];
+        int i = 0, j = 0;
+        for (int k = 0; k < ids.length; k++) {
+            long stored;
+            if (j >= n || (i < current.count && current.ids.get(i) < delta[j])) {
+                ids[k] = current.ids.get(i);
+                stored = current.fingerprintAt(i++);
+            } else {
+                ids[k] = delta[j++];
+                stored = NO_FINGERPRINT;
+            }
+            fingerprints[k] = latest.get(ids[k], stored);
+        }
+        return new Merged(ids, fingerprints);
+    }
+
+    private static void writeBase(Path path, Merged merged) throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tempPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(merged.ids().length).flip();
+            channel.write(header);
+
+            ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+            writeLongs(channel, chunk, merged.ids());
+            writeLongs(channel, chunk, merged.fingerprints());
+
+            channel.force(true); // data must be durable before the file becomes visible
+        }
+
+        AdvertisementJournal.moveAtomically(tempPath, path);
+    }
+
+    private static void writeLongs(FileChannel channel, ByteBuffer chunk, long[] values) throws IOException {
+        chunk.clear();
+        for (long value : values) {
+            if (!chunk.hasRemaining()) {
+                chunk.flip();
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                chunk.clear();
+            }
+            chunk.putLong(value);
+        }
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+    }
+
+    // Map the newest valid base generation and clean up older ones
+    private Base openLatestBase() throws IOException {
+        List<Long> generations = listNumbered(".base-");
+        generations.sort(null);
+
+        Base opened = null;
+        for (int i = generations.size() - 1; i >= 0 && opened == null; i--) {
+            try {
+                opened = Base.open(basePath(generations.get(i)), generations.get(i));
+            } catch (IOException e) {
+                logErrors.log(
+                        "bg.paskov.scanner.storage.MappedSeenStore",
+                        "WARN",
+                        "Skipping unreadable seen-ID base file generation " + generations.get(i),
+                        e
+                );
+            }
+        }
+
+        for (long generation : generations) {
+            if (opened == null || generation < opened.generation) {
+                deleteQuietly(basePath(generation));
+            }
+        }
+
+        return opened != null ? opened : Base.empty();
+    }
+
+    private void loadSegments() throws IOException {
+        List<Long> legacySequences = listNumbered(".delta-");
+        List<Long> sequences = listNumbered(".records-");
+        sequences.addAll(legacySequences);
+        sequences.sort(null);
+
+        for (long sequence : sequences) {
+            Segment segment = legacySequences.contains(sequence)
+                    ? new Segment(deltaPath(sequence), Long.BYTES)
+                    : new Segment(recordsPath(sequence), RECORD_BYTES);
+            segment.load();
+            segment.fingerprints.forEach((id, fingerprint) -> {
+                if (!isKnown(id)) {
+                    segment.ids.add(id); // first seen in this segment rather than updated
+                }
+            });
+            segment.sealed = true;
+            segments.add(segment);
+            nextSegmentSequence = sequence + 1;
+        }
+    }
+
+    private boolean isKnown(long id) {
+        for (Segment segment : segments) {
+            if (segment.ids.contains(id)) {
+                return true;
+            }
+        }
+        return base.binarySearch(id);
+    }
+
+    private Segment activeSegment() {
+        if (!segments.isEmpty() && !segments.get(segments.size() - 1).sealed) {
+            return segments.get(segments.size() - 1);
+        }
+
+        Segment segment = new Segment(recordsPath(nextSegmentSequence++), RECORD_BYTES);
+        segments.add(segment);
+        return segment;
+    }
+
+    private List<Long> listNumbered(String marker) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        Path directory = prefix.toAbsolutePath().getParent();
+        String name = prefix.getFileName() + marker;
+
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix.getFileName() + marker + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(name.length());
+                try {
+                    numbers.add(Long.parseLong(suffix));
+                } catch (NumberFormatException ignored) {
+                    // leftover temp file or unrelated name
+                }
+            }
+        }
+        return numbers;
+    }
+
+    private Path basePath(long generation) {
+        return prefix.resolveSibling(prefix.getFileName() + ".base-" + generation);
+    }
+
+    private Path deltaPath(long sequence) {
+        return prefix.resolveSibling(prefix.getFileName() + ".delta-" + sequence);
+    }
+
+    private Path recordsPath(long sequence) {
+        return prefix.resolveSibling(prefix.getFileName() + ".records-" + sequence);
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // still mapped (Windows); removed on the next startup
+        }
+    }
+
+    // Immutable mapped view of a base generation
+    private static final class Base {
+        final Path path;
+        final long generation;
+        final LongBuffer ids;
+        final LongBuffer fingerprints; // null for version 1 files
+        final int count;
+        volatile BloomFilter bloom;
+
+        private Base(Path path, long generation, LongBuffer ids, LongBuffer fingerprints, int count) {
+            this.path = path;
+            this.generation = generation;
+            this.ids = ids;
+            this.fingerprints = fingerprints;
+            this.count = count;
+        }
+
+        static Base empty() {
+            return new Base(null, 0, LongBuffer.allocate(0), null, 0);
+        }
+
+        static Base open(Path path, long generation) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < HEADER_BYTES) {
+                    throw new IOException("Seen-ID base file is truncated: " + path);
+                }
+
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                int version = buffer.getInt(4);
+                long count = buffer.getLong(8);
+                int columns = version == VERSION ? 2 : 1;
+                if (buffer.getInt(0) != MAGIC || (version != VERSION && version != VERSION_WITHOUT_FINGERPRINTS)
+                        || count < 0 || HEADER_BYTES + count * columns * Long.BYTES != size) {
+                    throw new IOException("Seen-ID base file has an invalid header: " + path);
+                }
+
+                int columnBytes = (int) count * Long.BYTES;
+                LongBuffer ids = buffer.slice(HEADER_BYTES, columnBytes).asLongBuffer();
+                LongBuffer fingerprints = version == VERSION
+                        ? buffer.slice(HEADER_BYTES + columnBytes, columnBytes).asLongBuffer()
+                        : null;
+                return new Base(path, generation, ids, fingerprints, (int) count);
+            }
+        }
+
+        boolean contains(long id) {
+            BloomFilter filter = bloom;
+            if (filter != null && !filter.mightContain(id)) {
+                return false;
+            }
+            return binarySearch(id);
+        }
+
+        long fingerprint(long id) {
+            BloomFilter filter = bloom;
+            if (filter != null && !filter.mightContain(id)) {
+                return NO_FINGERPRINT;
+            }
+            int index = indexOf(id);
+            return index < 0 ? NO_FINGERPRINT : fingerprintAt(index);
+        }
+
+        long fingerprintAt(int index) {
+            return fingerprints == null ? NO_FINGERPRINT : fingerprints.get(index);
+        }
+
+        boolean binarySearch(long id) {
+            return indexOf(id) >= 0;
+        }
+
+        int indexOf(long id) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = ids.get(mid);
+                if (value < id) {
+                    low = mid + 1;
+                } else if (value > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // Append-only file of (id, fingerprint) records plus its in-memory index
+    private static final class Segment {
+        final Path path;
+        final int recordBytes;
+        final LongHashSet ids = new LongHashSet(); // IDs first seen in this segment
+        final LongLongHashMap fingerprints = new LongLongHashMap(); // latest record of every ID written here
+        boolean sealed;
+
+        Segment(Path path, int recordBytes) {
+            this.path = path;
+            this.recordBytes = recordBytes;
+        }
+
+        void load() {
+            try {
+                if (!Files.exists(path)) {
+                    return;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+                while (buffer.remaining() >= recordBytes) { // ignore a torn trailing write
+                    long id = buffer.getLong();
+                    long fingerprint = recordBytes == RECORD_BYTES ? buffer.getLong() : NO_FINGERPRINT;
+                    fingerprints.put(id, fingerprint, NO_FINGERPRINT);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read seen-ID segment " + path, e);
+            }
+        }
+    }
+
+    // Bloom filter with ~1% false positives (10 bits per ID, 7 hash functions)
+    private static final class BloomFilter {
+        private static final int HASHES = 7;
+        private final long[] bits;
+        private final long bitCount;
+
+        private BloomFilter(long bitCount) {
+            this.bitCount = bitCount;
+            this.bits = new long[(int) ((bitCount + 63) / 64)];
+        }
+
+        static BloomFilter of(Base base) {
+            BloomFilter filter = new BloomFilter(Math.max(64, (long) base.count * 10));
+            for (int i = 0; i < base.count; i++) {
+                filter.put(base.ids.get(i));
+            }
+            return filter;
+        }
+
+        void put(long id) {
+            long h1 = mix(id);
+            long h2 = mix(h1 ^ 0x9e3779b97f4a7c15L);
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(long id) {
+            long h1 = mix(id);
+            long h2 = mix(h1 ^ 0x9e3779b97f4a7c15L);
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            value *= 0xc4ceb9fe1a85ec53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+
+import java.util.Collection;
+
+// Set of advertisement IDs that were already seen and notified, each with the fingerprint
+// of the version last seen
+public interface SeenStore {
+
+    // Fingerprint of IDs stored before fingerprints were kept, and of unknown IDs
+    long NO_FINGERPRINT = 0;
+
+    boolean contains(long id);
+
+    // Persist newly seen advertisements and add them to the index
+    void addAll(Collection<Advertisement> advertisements);
+
+    // Fingerprint of the version last recorded for the ID, or NO_FINGERPRINT
+    long fingerprint(long id);
+
+    // Record the current fingerprints of advertisements that are already stored
+    void updateFingerprints(Collection<Advertisement> advertisements);
+
+    int size();
+}
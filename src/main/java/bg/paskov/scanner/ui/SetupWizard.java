@@ -94,15 +94,13 @@ public class SetupWizard {
         }
 
         // Verify email configuration by sending a test email
-        try {
-            EmailSender tester = new EmailSender(
-                    from,
-                    password,
-                    to,
-                    TypesNotifire.NO_RETRY,
-                    logErrors
-            );
-
+        try (EmailSender tester = new EmailSender(
+                from,
+                password,
+                to,
+                TypesNotifire.NO_RETRY,
+                logErrors
+        )) {
             tester.testConnection();
 
         } catch (Exception e) {
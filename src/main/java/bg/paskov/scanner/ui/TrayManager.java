@@ -60,6 +60,16 @@ public class TrayManager {
         }
     }
 
+    // Show a desktop popup from the tray icon; returns false when there is no tray icon
+    public boolean displayMessage(String caption, String text) {
+        if (trayIcon == null) {
+            return false;
+        }
+
+        trayIcon.displayMessage(caption, text, TrayIcon.MessageType.INFO);
+        return true;
+    }
+
     // Restart the application with the specified command-line argument
     private void reconfigureApp() {
         stopScheduler();
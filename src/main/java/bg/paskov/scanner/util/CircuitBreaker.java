@@ -0,0 +1,111 @@
+package bg.paskov.scanner.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Fails fast once a dependency has failed repeatedly, and lets a single trial call through after a cool-down
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, long openDurationMillis) {
+        this(name, failureThreshold, openDurationMillis, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, long openDurationMillis, LongSupplier nanoClock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    // Whether a call may go through now; in half-open state only one trial call is allowed
+    public boolean allowRequest() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> false;
+                case HALF_OPEN -> {
+                    if (trialInFlight) {
+                        yield false;
+                    }
+                    trialInFlight = true;
+                    yield true;
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordSuccess() {
+        lock.lock();
+        try {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+
+            // A failed trial call re-opens immediately
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openedAt = nanoClock.getAsLong();
+                trialInFlight = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // Thrown instead of calling a dependency whose circuit is open
+    public static class OpenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String name) {
+            super("Circuit open: " + name);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package bg.paskov.scanner.util;
+
+public class Hashing {
+
+    // 64-bit FNV-1a parameters
+    public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Hashing() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    // Mix the characters of a string into a running FNV-1a hash
+    public static long fnv1a64(long hash, String value) {
+        if (value == null) {
+            return fnv1a64(hash, 0L);
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        // Separator so that ("ab", "c") and ("a", "bc") hash differently
+        return (hash ^ 0xff) * FNV_PRIME;
+    }
+
+    // Mix the bytes of a long into a running FNV-1a hash
+    public static long fnv1a64(long hash, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    // Spread sequential IDs over an open-addressing table (first rounds of the murmur3 finalizer);
+    // callers mask the result to the table size
+    public static int spread(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return (int) value;
+    }
+}
@@ -2,31 +2,138 @@ package bg.paskov.scanner.util;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class LogErrors {
+public class LogErrors implements AutoCloseable {
 
     private static final long MAX_LOG_FILE_SIZE = 5 * 1024 * 1024; // 5MB
     private static final int MAX_ROTATED_FILES = 3;
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final String SEPARATOR = "-----------------------------------------";
+
     private final Path logFilePath;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final long maxLogFileSize;
+
+    // Synchronous mode: a lock instead of synchronized, so virtual threads are not pinned
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Asynchronous mode: callers only enqueue, a single writer thread owns the file
+    private final BlockingQueue<LogEntry> queue;
+    private final AtomicLong droppedEntries = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean closed;
+    private FileChannel channel;
+    private long currentSize;
 
     public LogErrors(Path logFilePath) {
+        this(logFilePath, false);
+    }
+
+    public LogErrors(Path logFilePath, boolean async) {
+        this(logFilePath, async, DEFAULT_QUEUE_CAPACITY, MAX_LOG_FILE_SIZE);
+    }
+
+    LogErrors(Path logFilePath, boolean async, int queueCapacity, long maxLogFileSize) {
         this.logFilePath = logFilePath;
+        this.maxLogFileSize = maxLogFileSize;
+
+        if (async) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            writerThread = Thread.ofPlatform().daemon().name("log-writer").start(this::drainQueue);
+        } else {
+            queue = null;
+            writerThread = null;
+        }
     }
 
     // Write a log entry with optional exception details
-    public synchronized void log(
+    public void log(
             String module,
             String level,
             String message,
             Exception e
     ) {
+        LogEntry entry = new LogEntry(
+                System.currentTimeMillis(),
+                module,
+                level,
+                message,
+                e != null ? e.getClass().getName() : null,
+                e != null ? e.getMessage() : null,
+                null
+        );
+
+        if (queue == null) {
+            writeSynchronously(entry);
+        } else if (closed || !queue.offer(entry)) {
+            // Never block the caller: count what could not be queued and report it later
+            droppedEntries.incrementAndGet();
+        }
+    }
+
+    // Entries waiting for the writer thread; always 0 in synchronous mode
+    public int queueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    // Block until every entry queued so far has been written (no-op in synchronous mode)
+    public void flush() {
+        if (queue == null || !writerThread.isAlive()) {
+            return;
+        }
+
+        CountDownLatch written = new CountDownLatch(1);
+        try {
+            queue.put(new LogEntry(0, null, null, null, null, null, written));
+            written.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Flush pending entries and stop the writer thread
+    @Override
+    public void close() {
+        if (queue == null || closed) {
+            return;
+        }
+
+        flush();
+        closed = true;
+
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long droppedEntries() {
+        return droppedEntries.get();
+    }
+
+    private void writeSynchronously(LogEntry entry) {
+        lock.lock();
         try {
             rotateIfNeeded();
 
@@ -35,19 +142,108 @@ public class LogErrors {
                     StandardOpenOption.CREATE,
                     StandardOpenOption.APPEND
             )) {
-                writeLine(writer, "[" + module + "] [" + level + "] " + message);
+                writer.write(format(entry));
+            }
+
+        } catch (IOException ignored) {
+            // Last line of defense: logging must never crash the application
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Writer thread: take whatever is queued, write it as one batch, repeat
+    private void drainQueue() {
+        List<LogEntry> batch = new ArrayList<>(MAX_BATCH_SIZE);
 
-                if (e != null) {
-                    writeLine(writer, "Exception: " + e.getClass().getName());
-                    writeLine(writer, "Details: " + e.getMessage());
+        while (!closed) {
+            try {
+                // Timed poll instead of interrupts: an interrupt would close the FileChannel mid-write
+                LogEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
                 }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+            writeBatch(batch);
+            batch.clear();
+        }
+
+        // Entries that raced with close()
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+        closeChannel();
+    }
+
+    private void writeBatch(List<LogEntry> batch) {
+        StringBuilder text = new StringBuilder();
 
-                writeLine(writer, "-----------------------------------------");
+        long dropped = droppedEntries.getAndSet(0);
+        if (dropped > 0) {
+            text.append(format(new LogEntry(System.currentTimeMillis(), "bg.paskov.scanner.util.LogErrors", "WARN",
+                    dropped + " log entries dropped: queue full", null, null, null)));
+        }
+        for (LogEntry entry : batch) {
+            if (entry.flushed() == null) {
+                text.append(format(entry));
             }
+        }
 
+        try {
+            if (!text.isEmpty()) {
+                ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+                appendToChannel(bytes);
+            }
         } catch (IOException ignored) {
             // Last line of defense: logging must never crash the application
+            closeChannel();
+        } finally {
+            for (LogEntry entry : batch) {
+                if (entry.flushed() != null) {
+                    entry.flushed().countDown();
+                }
+            }
+        }
+    }
+
+    // Append to the open channel, rotating on the size tracked in memory instead of a stat per call
+    private void appendToChannel(ByteBuffer bytes) throws IOException {
+        if (channel == null) {
+            openChannel();
+        }
+
+        if (currentSize >= maxLogFileSize) {
+            closeChannel();
+            rotateFiles();
+            openChannel();
+        }
+
+        while (bytes.hasRemaining()) {
+            currentSize += channel.write(bytes);
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(logFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        currentSize = channel.size();
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to report to
         }
+        channel = null;
     }
 
     // Rotate log files when maximum size is exceeded
@@ -56,10 +252,15 @@ public class LogErrors {
             return;
         }
 
-        if (Files.size(logFilePath) < MAX_LOG_FILE_SIZE) {
+        if (Files.size(logFilePath) < maxLogFileSize) {
             return;
         }
 
+        rotateFiles();
+    }
+
+    // Shift error.log.N to error.log.N+1 and move the current file to error.log.1
+    private void rotateFiles() throws IOException {
         for (int i = MAX_ROTATED_FILES; i >= 1; i--) {
             Path source = logFilePath.resolveSibling("error.log." + i);
             Path target = logFilePath.resolveSibling("error.log." + (i + 1));
@@ -80,12 +281,37 @@ public class LogErrors {
         );
     }
 
+    // Render an entry as its log lines
+    private String format(LogEntry entry) {
+        String timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.timestamp()), ZoneId.systemDefault())
+                .format(formatter);
+        StringBuilder text = new StringBuilder();
+
+        appendLine(text, timestamp, "[" + entry.module() + "] [" + entry.level() + "] " + entry.message());
+
+        if (entry.exceptionClass() != null) {
+            appendLine(text, timestamp, "Exception: " + entry.exceptionClass());
+            appendLine(text, timestamp, "Details: " + entry.exceptionMessage());
+        }
+
+        appendLine(text, timestamp, SEPARATOR);
+        return text.toString();
+    }
+
     // Write a single formatted log line
-    private void writeLine(BufferedWriter writer, String text) throws IOException {
-        writer.write(LocalDateTime.now().format(formatter));
-        writer.write(" ");
-        writer.write(text);
-        writer.newLine();
+    private void appendLine(StringBuilder text, String timestamp, String line) {
+        text.append(timestamp).append(' ').append(line).append(System.lineSeparator());
     }
-}
 
+    // A queued log call; entries carrying a latch are flush markers
+    private record LogEntry(
+            long timestamp,
+            String module,
+            String level,
+            String message,
+            String exceptionClass,
+            String exceptionMessage,
+            CountDownLatch flushed
+    ) {
+    }
+}
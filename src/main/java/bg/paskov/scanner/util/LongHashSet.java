@@ -0,0 +1,97 @@
+package bg.paskov.scanner.util;
+
+import java.util.Arrays;
+
+// Open-addressing hash set of primitive longs, avoiding a boxed Long per entry
+public class LongHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] slots;
+    private int size;
+    private boolean containsEmptyKey;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        slots = new long[capacity];
+    }
+
+    // Add a value; returns false if it was already present
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+
+        int mask = slots.length - 1;
+        int index = Hashing.spread(value) & mask;
+
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+
+        slots[index] = value;
+        size++;
+
+        if (size > slots.length * LOAD_FACTOR) {
+            resize(slots.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmptyKey;
+        }
+
+        int mask = slots.length - 1;
+        int index = Hashing.spread(value) & mask;
+
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+        containsEmptyKey = false;
+    }
+
+    private void resize(int capacity) {
+        long[] oldSlots = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+
+        for (long value : oldSlots) {
+            if (value == EMPTY) {
+                continue;
+            }
+            int index = Hashing.spread(value) & mask;
+            while (slots[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = value;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package bg.paskov.scanner.util;
+
+import java.util.Arrays;
+
+// Open-addressing hash map from primitive long keys to long values, avoiding boxed entries
+public class LongLongHashMap {
+
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private boolean containsEmptyKey;
+    private long emptyKeyValue;
+
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    // Associate the value with the key; returns the previous value or missingValue
+    public long put(long key, long value, long missingValue) {
+        if (key == EMPTY) {
+            long previous = containsEmptyKey ? emptyKeyValue : missingValue;
+            if (!containsEmptyKey) {
+                containsEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue = value;
+            return previous;
+        }
+
+        int mask = keys.length - 1;
+        int index = Hashing.spread(key) & mask;
+
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                long previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        size++;
+
+        if (size > keys.length * LOAD_FACTOR) {
+            resize(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    public long get(long key, long missingValue) {
+        if (key == EMPTY) {
+            return containsEmptyKey ? emptyKeyValue : missingValue;
+        }
+
+        int mask = keys.length - 1;
+        int index = Hashing.spread(key) & mask;
+
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Visit every entry, in no particular order
+    public void forEach(LongLongConsumer consumer) {
+        if (containsEmptyKey) {
+            consumer.accept(EMPTY, emptyKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    // All keys, in no particular order
+    public long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        if (containsEmptyKey) {
+            result[n++] = EMPTY;
+        }
+        for (long key : keys) {
+            if (key != EMPTY) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        containsEmptyKey = false;
+    }
+
+    public interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        int mask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) {
+                continue;
+            }
+            int index = Hashing.spread(oldKeys[i]) & mask;
+            while (keys[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+}
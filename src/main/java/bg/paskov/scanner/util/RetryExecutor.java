@@ -1,7 +1,22 @@
 package bg.paskov.scanner.util;
 
+import bg.paskov.scanner.metrics.RetryAttemptEvent;
+import bg.paskov.scanner.metrics.RetryBackoffEvent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
 public class RetryExecutor {
 
+    // Only times the retries; the attempts themselves run on virtual threads
+    private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("retry-scheduler").factory()
+    );
+
     private RetryExecutor() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
     }
@@ -19,10 +34,14 @@ public class RetryExecutor {
         long delay = initialDelayMillis;
 
         for (int i = 1; i <= attempts; i++) {
+            RetryAttemptEvent attemptEvent = new RetryAttemptEvent();
+            attemptEvent.begin();
             try {
                 action.run();
+                commitAttempt(attemptEvent, module, operationName, i, attempts, null);
                 return; // Success
             } catch (Exception e) {
+                commitAttempt(attemptEvent, module, operationName, i, attempts, e);
 
                 logErrors.log(
                         module,
@@ -35,12 +54,16 @@ public class RetryExecutor {
                     break;
                 }
 
+                RetryBackoffEvent backoffEvent = new RetryBackoffEvent();
+                backoffEvent.begin();
                 try {
                     Thread.sleep(delay);
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
                     logErrors.log("bg.paskov.scanner.util.RetryExecutor", "WARN", "Retry interrupted", ie);
                     return;
+                } finally {
+                    commitBackoff(backoffEvent, module, operationName, i, delay);
                 }
 
                 delay *= 2; // exponential backoff
@@ -55,5 +78,160 @@ public class RetryExecutor {
                 null
         );
     }
-}
 
+    // Execute an action asynchronously: each attempt is scheduled instead of sleeping between them
+    public static CompletableFuture<Void> executeAsync(
+            Runnable action,
+            int attempts,
+            long initialDelayMillis,
+            long maxDelayMillis,
+            CircuitBreaker circuitBreaker,
+            String module,
+            String operationName,
+            LogErrors logErrors
+    ) {
+        return executeAsync(action, attempts, initialDelayMillis, maxDelayMillis, circuitBreaker,
+                module, operationName, logErrors, RETRY_SCHEDULER);
+    }
+
+    public static CompletableFuture<Void> executeAsync(
+            Runnable action,
+            int attempts,
+            long initialDelayMillis,
+            long maxDelayMillis,
+            CircuitBreaker circuitBreaker,
+            String module,
+            String operationName,
+            LogErrors logErrors,
+            ScheduledExecutorService scheduler
+    ) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        AsyncRetry retry = new AsyncRetry(action, attempts, initialDelayMillis, maxDelayMillis, circuitBreaker,
+                module, operationName, logErrors, scheduler, result);
+
+        retry.schedule(0);
+        return result;
+    }
+
+    private static void commitAttempt(RetryAttemptEvent event, String module, String operationName, int attempt,
+                                      int attempts, Exception error) {
+        if (event.shouldCommit()) {
+            event.module = module;
+            event.operation = operationName;
+            event.attempt = attempt;
+            event.maxAttempts = attempts;
+            event.succeeded = error == null;
+            event.error = error == null ? null : error.getClass().getName();
+            event.commit();
+        }
+    }
+
+    private static void commitBackoff(RetryBackoffEvent event, String module, String operationName, int attempt, long delayMillis) {
+        if (event.shouldCommit()) {
+            event.module = module;
+            event.operation = operationName;
+            event.attempt = attempt;
+            event.delayMillis = delayMillis;
+            event.commit();
+        }
+    }
+
+    // Decorrelated jitter: a random delay between the base and three times the previous one, capped
+    static long nextDelay(long baseMillis, long maxDelayMillis, long previousMillis, RandomGenerator random) {
+        long upper = Math.max(baseMillis + 1, Math.min(maxDelayMillis, previousMillis * 3));
+        return Math.min(maxDelayMillis, random.nextLong(baseMillis, upper));
+    }
+
+    // State of one asynchronous retry sequence
+    private static final class AsyncRetry {
+        private final Runnable action;
+        private final int attempts;
+        private final long initialDelayMillis;
+        private final long maxDelayMillis;
+        private final CircuitBreaker circuitBreaker;
+        private final String module;
+        private final String operationName;
+        private final LogErrors logErrors;
+        private final ScheduledExecutorService scheduler;
+        private final CompletableFuture<Void> result;
+
+        private int attempt;
+        private long delay;
+        private RetryBackoffEvent backoffEvent;
+        private long plannedDelay;
+
+        AsyncRetry(Runnable action, int attempts, long initialDelayMillis, long maxDelayMillis, CircuitBreaker circuitBreaker,
+                   String module, String operationName, LogErrors logErrors, ScheduledExecutorService scheduler,
+                   CompletableFuture<Void> result) {
+            this.action = action;
+            this.attempts = attempts;
+            this.initialDelayMillis = initialDelayMillis;
+            this.maxDelayMillis = Math.max(initialDelayMillis, maxDelayMillis);
+            this.circuitBreaker = circuitBreaker;
+            this.module = module;
+            this.operationName = operationName;
+            this.logErrors = logErrors;
+            this.scheduler = scheduler;
+            this.result = result;
+            this.delay = initialDelayMillis;
+        }
+
+        // Hand the next attempt to a virtual thread after the given delay
+        void schedule(long delayMillis) {
+            Runnable start = () -> Thread.ofVirtual().name("retry-" + operationName).start(this::runAttempt);
+
+            if (delayMillis <= 0) {
+                start.run();
+            } else {
+                scheduler.schedule(start, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void runAttempt() {
+            if (backoffEvent != null) {
+                commitBackoff(backoffEvent, module, operationName, attempt, plannedDelay);
+                backoffEvent = null;
+            }
+            attempt++;
+
+            if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                logErrors.log(module, "WARN", operationName + " skipped: circuit " + circuitBreaker.name() + " is open", null);
+                result.completeExceptionally(new CircuitBreaker.OpenException(circuitBreaker.name()));
+                return;
+            }
+
+            RetryAttemptEvent attemptEvent = new RetryAttemptEvent();
+            attemptEvent.begin();
+            try {
+                action.run();
+                commitAttempt(attemptEvent, module, operationName, attempt, attempts, null);
+                if (circuitBreaker != null) {
+                    circuitBreaker.recordSuccess();
+                }
+                result.complete(null);
+                return;
+            } catch (Exception e) {
+                commitAttempt(attemptEvent, module, operationName, attempt, attempts, e);
+                if (circuitBreaker != null) {
+                    circuitBreaker.recordFailure();
+                }
+                logErrors.log(module, "ERROR", operationName + " failed (" + attempt + "/" + attempts + ")", e);
+
+                if (attempt >= attempts) {
+                    logErrors.log(module, "ERROR", operationName + " permanently failed after retries", null);
+                    result.completeExceptionally(e);
+                    return;
+                }
+            }
+
+            long wait = delay;
+            delay = nextDelay(initialDelayMillis, maxDelayMillis, delay, ThreadLocalRandom.current());
+
+            // Ended by the next attempt, which runs on another thread
+            backoffEvent = new RetryBackoffEvent();
+            backoffEvent.begin();
+            plannedDelay = wait;
+            schedule(wait);
+        }
+    }
+}
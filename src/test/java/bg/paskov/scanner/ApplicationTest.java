@@ -168,11 +168,12 @@ public class ApplicationTest {
     @Test
     void startShouldScheduleMobileBgScanner() {
         when(configManager.isValidConfiguration()).thenReturn(true);
-        when(configManager.getConfigValue("email.from")).thenReturn("from@test.com");
-        when(configManager.getConfigValue("email.to")).thenReturn("to@test.com");
-        when(configManager.getConfigValue("email.password")).thenReturn("pass");
-        when(configManager.getConfigValue("scan.url")).thenReturn("http://test.com");
-        when(configManager.getInt("scan.interval.days", 1)).thenReturn(2);
+        // Lenient: the application also reads optional keys that are not stubbed here
+        lenient().when(configManager.getConfigValue("email.from")).thenReturn("from@test.com");
+        lenient().when(configManager.getConfigValue("email.to")).thenReturn("to@test.com");
+        lenient().when(configManager.getConfigValue("email.password")).thenReturn("pass");
+        lenient().when(configManager.getConfigValue("scan.url")).thenReturn("http://test.com");
+        lenient().when(configManager.getInt("scan.interval.days", 1)).thenReturn(2);
 
         application.start(new String[]{});
 
@@ -183,4 +184,27 @@ public class ApplicationTest {
                 eq(java.util.concurrent.TimeUnit.DAYS)
         );
     }
+
+    @Test
+    void startShouldScheduleInSecondsWhenSubDayIntervalConfigured() {
+        when(configManager.isValidConfiguration()).thenReturn(true);
+        lenient().when(configManager.getConfigValue("scan.url")).thenReturn("http://test.com");
+        lenient().when(configManager.getInt("scan.interval.seconds", 0)).thenReturn(90);
+
+        application.start(new String[]{});
+
+        verify(scheduledExecutorService).scheduleAtFixedRate(any(Runnable.class), eq(0L), eq(90L), eq(TimeUnit.SECONDS));
+    }
+
+    @Test
+    void startShouldScheduleEachSearchWhenAdaptive() {
+        when(configManager.isValidConfiguration()).thenReturn(true);
+        lenient().when(configManager.getConfigValue("scan.url")).thenReturn("http://test.com");
+        lenient().when(configManager.getConfigValue("scan.schedule")).thenReturn("adaptive");
+
+        application.start(new String[]{});
+
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+        verify(scheduledExecutorService, never()).scheduleAtFixedRate(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+    }
 }
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -179,4 +180,26 @@ public class ConfigManagerTest {
 
         assertFalse(configManager.isValidConfiguration());
     }
-}
\ No newline at end of file
+
+    @Test
+    void isValidConfigurationShouldAcceptUrlListInsteadOfSingleUrl() {
+        configManager.setProperties("email.from",     "from@example.com");
+        configManager.setProperties("email.to",       "to@example.com");
+        configManager.setProperties("email.password", "secret");
+        configManager.setProperties("scan.urls",      "https://example.com/a, https://example.com/b");
+
+        assertTrue(configManager.isValidConfiguration());
+    }
+
+    @Test
+    void getListShouldSplitAndTrimValues() {
+        configManager.setProperties("scan.urls", " https://example.com/a ,,https://example.com/b ");
+
+        assertEquals(List.of("https://example.com/a", "https://example.com/b"), configManager.getList("scan.urls"));
+    }
+
+    @Test
+    void getListShouldReturnEmptyListForMissingKey() {
+        assertTrue(configManager.getList("scan.urls").isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package bg.paskov.scanner.filter;
+
+import bg.paskov.scanner.model.Advertisement;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterExpressionTest {
+
+    private static final Advertisement OCTAVIA = new Advertisement(1, "Skoda Octavia 1.9 TDI", 18_400, 2017, 34_000, "Дизелов", "гр. София");
+    private static final Advertisement ASTRA = new Advertisement(2, "Opel Astra", 9_900, 2012, 180_000, "Бензинов", "гр. Бургас");
+    private static final Advertisement NO_DETAILS = new Advertisement(3, "Audi A4");
+
+    @Test
+    void blankRuleMatchesEverything() {
+        assertTrue(FilterExpression.compile(null).test(NO_DETAILS));
+        assertTrue(FilterExpression.compile("  ").test(OCTAVIA));
+    }
+
+    @Test
+    void comparesNumbers() {
+        Predicate<Advertisement> filter = FilterExpression.compile("price < 15000 && year >= 2010");
+
+        assertTrue(filter.test(ASTRA));
+        assertFalse(filter.test(OCTAVIA));
+    }
+
+    @Test
+    void unknownValuesNeverMatch() {
+        assertFalse(FilterExpression.compile("price < 15000").test(NO_DETAILS));
+        assertFalse(FilterExpression.compile("price != 15000").test(NO_DETAILS));
+        assertTrue(FilterExpression.compile("!(price >= 15000)").test(NO_DETAILS));
+    }
+
+    @Test
+    void comparesTextIgnoringCase() {
+        assertTrue(FilterExpression.compile("fuel == \"дизелов\"").test(OCTAVIA));
+        assertTrue(FilterExpression.compile("location ~ 'софия'").test(OCTAVIA));
+        assertTrue(FilterExpression.compile("title ~ \"astra\" && fuel != \"Дизелов\"").test(ASTRA));
+        assertFalse(FilterExpression.compile("location ~ \"София\"").test(NO_DETAILS));
+    }
+
+    @Test
+    void andBindsTighterThanOr() {
+        Predicate<Advertisement> filter = FilterExpression.compile("year >= 2015 || price < 10000 && mileage < 100_000");
+
+        assertTrue(filter.test(OCTAVIA));
+        assertFalse(filter.test(ASTRA));
+        assertTrue(FilterExpression.compile("(year >= 2015 || price < 10000) && mileage > 100000").test(ASTRA));
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("colour == \"red\""));
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("price < \"cheap\""));
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("fuel < \"Дизелов\""));
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("price < 15000 &&"));
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("(price < 15000"));
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("price < 15000 year > 2010"));
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("title ~ \"open"));
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("price # 1"));
+    }
+}
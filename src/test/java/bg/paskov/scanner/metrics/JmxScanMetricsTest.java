@@ -0,0 +1,47 @@
+package bg.paskov.scanner.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JmxScanMetricsTest {
+
+    @Test
+    void attributesAreReadableThroughThePlatformServer() throws Exception {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.recordScan(4, 1);
+        metrics.phase(ScanPhase.DIFF).record(1_000);
+
+        ObjectName name = JmxScanMetrics.register(metrics);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(4L, server.getAttribute(name, "AdsSeen"));
+            assertEquals(1L, server.getAttribute(name, "AdsNew"));
+
+            TabularData counts = (TabularData) server.getAttribute(name, "PhaseCounts");
+            assertEquals(1L, counts.get(new Object[]{"diff"}).get("value"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    void registeringAgainReplacesTheOldBean() throws Exception {
+        ScanMetrics first = new ScanMetrics();
+        ScanMetrics second = new ScanMetrics();
+        second.recordScan(9, 0);
+
+        JmxScanMetrics.register(first);
+        ObjectName name = JmxScanMetrics.register(second);
+        try {
+            assertEquals(9L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "AdsSeen"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package bg.paskov.scanner.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyHistogramTest {
+
+    @Test
+    void recordsIntoCumulativeBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(500)); // <= 1 ms
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));   // bound is inclusive
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));   // <= 5 ms
+        histogram.record(TimeUnit.MINUTES.toNanos(5));        // above every bound
+
+        long[] cumulative = histogram.cumulativeCounts();
+        assertEquals(LatencyHistogram.BUCKET_BOUNDS.length + 1, cumulative.length);
+        assertEquals(2, cumulative[0]);
+        assertEquals(3, cumulative[1]);
+        assertEquals(3, cumulative[LatencyHistogram.BUCKET_BOUNDS.length - 1]);
+        assertEquals(4, cumulative[LatencyHistogram.BUCKET_BOUNDS.length]);
+        assertEquals(4, histogram.count());
+    }
+
+    @Test
+    void meanAndSumUseRecordedDurations() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertEquals(20.0, histogram.meanMillis(), 1e-9);
+        assertEquals(0.04, histogram.sumSeconds(), 1e-9);
+    }
+
+    @Test
+    void quantileReturnsUpperBoundOfItsBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        histogram.record(TimeUnit.SECONDS.toNanos(3));
+
+        assertEquals(5.0, histogram.quantileUpperBoundMillis(0.5), 1e-9);
+        assertEquals(5.0, histogram.quantileUpperBoundMillis(0.99), 1e-9);
+        assertEquals(5000.0, histogram.quantileUpperBoundMillis(1.0), 1e-9);
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.meanMillis());
+        assertEquals(0, histogram.quantileUpperBoundMillis(0.99));
+        assertArrayEquals(new long[LatencyHistogram.BUCKET_BOUNDS.length + 1], histogram.cumulativeCounts());
+    }
+}
@@ -0,0 +1,47 @@
+package bg.paskov.scanner.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrometheusEndpointTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void servesMetricsOnLoopback() throws Exception {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.recordScan(3, 2);
+
+        try (PrometheusEndpoint endpoint = new PrometheusEndpoint(metrics, 0)) {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + endpoint.port() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString()
+            );
+
+            assertEquals(200, response.statusCode());
+            assertEquals(PrometheusEndpoint.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElse(null));
+            assertTrue(response.body().contains("scanner_ads_new_total 2\n"));
+        }
+    }
+
+    @Test
+    void rejectsNonGetRequests() throws Exception {
+        try (PrometheusEndpoint endpoint = new PrometheusEndpoint(new ScanMetrics(), 0)) {
+            HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + endpoint.port() + "/metrics"))
+                            .POST(HttpRequest.BodyPublishers.noBody())
+                            .build(),
+                    HttpResponse.BodyHandlers.discarding()
+            );
+
+            assertEquals(405, response.statusCode());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package bg.paskov.scanner.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanMetricsTest {
+
+    @Test
+    void countersAccumulate() {
+        ScanMetrics metrics = new ScanMetrics();
+
+        metrics.recordScan(20, 3);
+        metrics.recordScan(20, 0);
+        metrics.addBytesDownloaded(1024);
+        metrics.recordEmailAttempt(false);
+        metrics.recordEmailAttempt(true);
+        metrics.recordChanges(2);
+
+        assertEquals(2, metrics.scans());
+        assertEquals(40, metrics.adsSeen());
+        assertEquals(3, metrics.adsNew());
+        assertEquals(2, metrics.adsChanged());
+        assertEquals(1024, metrics.bytesDownloaded());
+        assertEquals(2, metrics.emailAttempts());
+        assertEquals(1, metrics.emailFailures());
+    }
+
+    @Test
+    void gaugesAreSampledOnRead() {
+        ScanMetrics metrics = new ScanMetrics();
+        long[] depth = {1};
+        metrics.registerGauge("log_queue_depth", () -> depth[0]);
+
+        depth[0] = 7;
+
+        assertEquals(Map.of("log_queue_depth", 7L), metrics.gaugeValues());
+    }
+
+    @Test
+    void prometheusTextHasHistogramsCountersAndGauges() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.phase(ScanPhase.PARSE).record(2_000_000); // 2 ms
+        metrics.recordScan(5, 1);
+        metrics.registerGauge("outbox_pending", () -> 2);
+
+        String text = metrics.toPrometheusText();
+
+        assertTrue(text.contains("# TYPE scanner_phase_seconds histogram\n"));
+        assertTrue(text.contains("scanner_phase_seconds_bucket{phase=\"parse\",le=\"0.001\"} 0\n"));
+        assertTrue(text.contains("scanner_phase_seconds_bucket{phase=\"parse\",le=\"0.005\"} 1\n"));
+        assertTrue(text.contains("scanner_phase_seconds_bucket{phase=\"parse\",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("scanner_phase_seconds_sum{phase=\"parse\"} 0.002000\n"));
+        assertTrue(text.contains("scanner_phase_seconds_count{phase=\"download\"} 0\n"));
+        assertTrue(text.contains("# TYPE scanner_ads_seen_total counter\nscanner_ads_seen_total 5\n"));
+        assertTrue(text.contains("scanner_ads_new_total 1\n"));
+        assertTrue(text.contains("# TYPE scanner_outbox_pending gauge\nscanner_outbox_pending 2\n"));
+    }
+}
@@ -10,7 +10,7 @@ class AdvertisementTest {
 
     @BeforeEach
     void setUp() {
-         ad1 = new Advertisement("Title A", "Link A", "ID123");
+         ad1 = new Advertisement(123, "Title A");
 
     }
 
@@ -21,29 +21,78 @@ class AdvertisementTest {
 
     @Test
     void testEquality() {
-        Advertisement ad2 = new Advertisement("Title B", "Link B", "ID123");
+        Advertisement ad2 = new Advertisement(123, "Title B");
 
         assertEquals(ad1, ad2, "Ads with same ID must be equal");
     }
 
     @Test
     void testHashCode() {
-        Advertisement ad2 = new Advertisement("Title B", "Link B", "ID123");
+        Advertisement ad2 = new Advertisement(123, "Title B");
 
         assertEquals(ad1.hashCode(), ad2.hashCode());
     }
 
     @Test
     void testNotEqual() {
-        Advertisement ad2 = new Advertisement("Title B", "Link B", "ID153");
+        Advertisement ad2 = new Advertisement(153, "Title B");
 
         assertNotEquals(ad1, ad2, "Ads with different IDs should not be equal");
     }
 
     @Test
     void testReflexive() {
-        Advertisement ad = new Advertisement("Title", "Link", "ID123");
+        Advertisement ad = new Advertisement(123, "Title");
         assertEquals(ad, ad);
     }
 
-}
\ No newline at end of file
+    @Test
+    void linkShouldBeDerivedFromId() {
+        assertEquals("https://www.mobile.bg/obiava-123", ad1.link());
+    }
+
+    @Test
+    void parseIdShouldReadDigitsAfterMarker() {
+        assertEquals(11734562431231233L, Advertisement.parseId("//www.mobile.bg/obiava-11734562431231233-bmw-x5-3-0d"));
+    }
+
+    @Test
+    void parseIdShouldAcceptIdAtEndOfLink() {
+        assertEquals(111, Advertisement.parseId("https://www.mobile.bg/obiava-111"));
+    }
+
+    @Test
+    void parseIdShouldReturnMinusOneWithoutId() {
+        assertEquals(-1, Advertisement.parseId("https://www.mobile.bg/obiavi/bmw"));
+        assertEquals(-1, Advertisement.parseId("https://www.mobile.bg/obiava-bmw"));
+        assertEquals(-1, Advertisement.parseId(null));
+    }
+
+    @Test
+    void fingerprintShouldKeepPriceAndChangeWithDetails() {
+        Advertisement ad = new Advertisement(1, "BMW 320", 12_000, 2016, 90_000, "Дизелов", "гр. София");
+        Advertisement moved = new Advertisement(1, "BMW 320", 12_000, 2016, 90_000, "Дизелов", "гр. Пловдив");
+
+        assertEquals(12_000, Advertisement.priceOf(ad.fingerprint()));
+        assertEquals(ad.fingerprint(), new Advertisement(1, "BMW 320", 12_000, 2016, 90_000, "Дизелов", "гр. София").fingerprint());
+        assertNotEquals(ad.fingerprint(), moved.fingerprint());
+        assertEquals(Advertisement.UNKNOWN, Advertisement.priceOf(new Advertisement(1, "BMW 320").fingerprint()));
+        assertNotEquals(0, new Advertisement(1, null, 0, 0, 0, null, null).fingerprint());
+    }
+
+    @Test
+    void changeShouldBeTypedByPrice() {
+        Advertisement ad = new Advertisement(1, "BMW 320", 12_000, 2016, 90_000, "Дизелов", null);
+        long fingerprint = ad.fingerprint();
+
+        assertNull(AdvertisementChange.between(fingerprint, ad));
+        assertEquals(AdvertisementChange.Type.PRICE_DROP,
+                AdvertisementChange.between(fingerprint, new Advertisement(1, "BMW 320", 11_000, 2016, 90_000, "Дизелов", null)).type());
+        assertEquals(AdvertisementChange.Type.PRICE_RISE,
+                AdvertisementChange.between(fingerprint, new Advertisement(1, "BMW 320", 13_000, 2016, 90_000, "Дизелов", null)).type());
+        assertEquals(AdvertisementChange.Type.DETAILS_CHANGED,
+                AdvertisementChange.between(fingerprint, new Advertisement(1, "BMW 320", 12_000, 2016, 95_000, "Дизелов", null)).type());
+        assertEquals(12_000,
+                AdvertisementChange.between(fingerprint, new Advertisement(1, "BMW 320", 11_000, 2016, 90_000, "Дизелов", null)).previousPrice());
+    }
+}
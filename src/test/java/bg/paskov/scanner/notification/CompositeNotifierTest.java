@@ -0,0 +1,101 @@
+package bg.paskov.scanner.notification;
+
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CompositeNotifierTest {
+
+    @Mock
+    private Notifiable email;
+
+    @Mock
+    private Notifiable tray;
+
+    @Mock
+    private LogErrors logErrors;
+
+    private CompositeNotifier composite;
+
+    @BeforeEach
+    void setUp() {
+        composite = new CompositeNotifier(logErrors);
+    }
+
+    @AfterEach
+    void tearDown() {
+        composite.close();
+    }
+
+    @Test
+    void shouldDeliverToEveryChannel() throws Exception {
+        when(email.sendNotificationAsync("Title", "Body")).thenReturn(CompletableFuture.completedFuture(null));
+        when(tray.sendNotificationAsync("Title", "Body")).thenReturn(CompletableFuture.completedFuture(null));
+        composite.addChannel("email", email, 1_000, true);
+        composite.addChannel("tray", tray, 1_000, false);
+
+        composite.sendNotificationAsync("Title", "Body").get(5, TimeUnit.SECONDS);
+
+        verify(email).sendNotificationAsync("Title", "Body");
+        verify(tray, timeout(5_000)).sendNotificationAsync("Title", "Body");
+    }
+
+    @Test
+    void slowChannelShouldNotDelayOthers() throws Exception {
+        when(email.sendNotificationAsync("Title", "Body")).thenReturn(new CompletableFuture<>()); // never completes
+        when(tray.sendNotificationAsync("Title", "Body")).thenReturn(CompletableFuture.completedFuture(null));
+        composite.addChannel("email", email, 60_000, false);
+        composite.addChannel("tray", tray, 60_000, true);
+
+        composite.sendNotificationAsync("Title", "Body").get(5, TimeUnit.SECONDS);
+
+        verify(tray).sendNotificationAsync("Title", "Body");
+        // The best-effort channel is started asynchronously and may not have been called yet
+        verify(email, timeout(5_000)).sendNotificationAsync("Title", "Body");
+    }
+
+    @Test
+    void failingBestEffortChannelShouldOnlyBeLogged() throws Exception {
+        when(email.sendNotificationAsync("Title", "Body")).thenReturn(CompletableFuture.completedFuture(null));
+        when(tray.sendNotificationAsync("Title", "Body")).thenThrow(new IllegalStateException("System tray is not available"));
+        composite.addChannel("email", email, 1_000, true);
+        composite.addChannel("tray", tray, 1_000, false);
+
+        composite.sendNotificationAsync("Title", "Body").get(5, TimeUnit.SECONDS);
+
+        verify(logErrors, timeout(5_000)).log(eq("bg.paskov.scanner.notification.CompositeNotifier"), eq("WARN"), contains("tray"), isNull());
+    }
+
+    @Test
+    void requiredChannelTimeoutShouldFailDelivery() {
+        when(email.sendNotificationAsync("Title", "Body")).thenReturn(new CompletableFuture<>());
+        composite.addChannel("email", email, 50, true);
+
+        CompletableFuture<Void> result = composite.sendNotificationAsync("Title", "Body");
+
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        verify(logErrors, timeout(5_000)).log(eq("bg.paskov.scanner.notification.CompositeNotifier"), eq("ERROR"), contains("email"), isNull());
+    }
+
+    @Test
+    void withoutRequiredChannelsShouldCompleteDespiteFailures() throws Exception {
+        when(tray.sendNotificationAsync("Title", "Body")).thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
+        composite.addChannel("tray", tray, 1_000, false);
+
+        composite.sendNotificationAsync("Title", "Body").get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, composite.size());
+    }
+}
@@ -0,0 +1,89 @@
+package bg.paskov.scanner.notification;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DigestNotifierTest {
+
+    @Mock
+    private Notifiable delegate;
+
+    private DigestNotifier digest;
+
+    @AfterEach
+    void tearDown() {
+        digest.close();
+    }
+
+    @Test
+    void shouldCombineAlertsWithinWindow() throws Exception {
+        when(delegate.sendNotificationAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        digest = new DigestNotifier(delegate, 100, 20);
+
+        CompletableFuture<Void> first = digest.sendNotificationAsync("New advertisement found", "BMW\nlink-1\n\n");
+        CompletableFuture<Void> second = digest.sendNotificationAsync("New advertisement found", "Audi\nlink-2\n\n");
+
+        verify(delegate, never()).sendNotificationAsync(anyString(), anyString());
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        verify(delegate).sendNotificationAsync("New advertisement found", "BMW\nlink-1\n\nAudi\nlink-2\n\n");
+    }
+
+    @Test
+    void shouldFlushEarlyWhenMaxItemsReached() {
+        when(delegate.sendNotificationAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        digest = new DigestNotifier(delegate, 60_000, 2);
+
+        digest.sendNotification("A", "1");
+        CompletableFuture<Void> second = digest.sendNotificationAsync("B", "2");
+
+        assertTrue(second.isDone());
+        verify(delegate).sendNotificationAsync("2 new alerts", "12");
+    }
+
+    @Test
+    void shouldStartNewWindowAfterFlush() {
+        when(delegate.sendNotificationAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        digest = new DigestNotifier(delegate, 60_000, 1);
+
+        digest.sendNotification("A", "1");
+        digest.sendNotification("B", "2");
+
+        verify(delegate).sendNotificationAsync("A", "1");
+        verify(delegate).sendNotificationAsync("B", "2");
+    }
+
+    @Test
+    void failedDigestShouldFailEveryItem() {
+        when(delegate.sendNotificationAsync(anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("SMTP down")));
+        digest = new DigestNotifier(delegate, 60_000, 2);
+
+        CompletableFuture<Void> first = digest.sendNotificationAsync("A", "1");
+        CompletableFuture<Void> second = digest.sendNotificationAsync("A", "2");
+
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void closeShouldSendPendingAlerts() {
+        when(delegate.sendNotificationAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        digest = new DigestNotifier(delegate, 60_000, 20);
+
+        digest.sendNotification("A", "1");
+        digest.close();
+
+        verify(delegate).sendNotificationAsync("A", "1");
+    }
+}
@@ -0,0 +1,158 @@
+package bg.paskov.scanner.notification;
+
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DurableOutboxTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private Notifiable delivery;
+
+    @Mock
+    private LogErrors logErrors;
+
+    private final List<DurableOutbox> outboxes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        outboxes.forEach(DurableOutbox::close);
+    }
+
+    private DurableOutbox outbox() {
+        DurableOutbox outbox = new DurableOutbox(tempDir.resolve("outbox.log"), delivery, logErrors, 60_000);
+        outbox.start();
+        outboxes.add(outbox);
+        return outbox;
+    }
+
+    @Test
+    void shouldPersistBeforeDelivering() throws Exception {
+        CompletableFuture<Void> pendingDelivery = new CompletableFuture<>();
+        when(delivery.sendNotificationAsync("Title", "Body")).thenReturn(pendingDelivery);
+        DurableOutbox outbox = outbox();
+
+        outbox.sendNotification("Title", "Body");
+
+        assertEquals(1, outbox.pendingCount());
+        assertTrue(Files.readString(tempDir.resolve("outbox.log")).startsWith("P\t"));
+    }
+
+    @Test
+    void shouldAcknowledgeDeliveredNotification() throws Exception {
+        when(delivery.sendNotificationAsync("Title", "Body")).thenReturn(CompletableFuture.completedFuture(null));
+        DurableOutbox outbox = outbox();
+
+        outbox.sendNotificationAsync("Title", "Body").join();
+
+        assertEquals(0, outbox.pendingCount());
+        List<String> records = Files.readAllLines(tempDir.resolve("outbox.log"));
+        String key = records.get(0).split("\t")[1];
+        assertEquals("A\t" + key, records.get(1));
+    }
+
+    @Test
+    void shouldReplayUndeliveredNotificationsAfterRestart() {
+        when(delivery.sendNotificationAsync("Title", "Body"))
+                .thenReturn(new CompletableFuture<>())
+                .thenReturn(CompletableFuture.completedFuture(null));
+        outbox().sendNotification("Title", "Body");
+
+        // Simulated restart while the first delivery never completed
+        DurableOutbox restarted = outbox();
+        assertEquals(1, restarted.pendingCount());
+
+        restarted.replayPending();
+
+        verify(delivery, times(2)).sendNotificationAsync("Title", "Body");
+        assertEquals(0, restarted.pendingCount());
+    }
+
+    @Test
+    void shouldKeepFailedNotificationPendingForRedelivery() {
+        when(delivery.sendNotificationAsync("Title", "Body"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("SMTP down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        DurableOutbox outbox = outbox();
+
+        outbox.sendNotification("Title", "Body");
+        assertEquals(1, outbox.pendingCount());
+
+        outbox.replayPending();
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    @Test
+    void shouldNotQueueSameAlertWhileItIsPending() {
+        when(delivery.sendNotificationAsync("Title", "Body")).thenReturn(new CompletableFuture<>());
+        DurableOutbox outbox = outbox();
+
+        outbox.sendNotification("Title", "Body");
+        outbox.sendNotification("Title", "Body");
+        outbox().sendNotification("Title", "Body"); // also after a restart
+
+        verify(delivery, times(1)).sendNotificationAsync("Title", "Body");
+        assertEquals(1, outbox.pendingCount());
+    }
+
+    @Test
+    void shouldSendSameAlertAgainOnceDelivered() {
+        when(delivery.sendNotificationAsync("Price drop", "BMW 12000 -> 10500")).thenReturn(CompletableFuture.completedFuture(null));
+        DurableOutbox outbox = outbox();
+
+        outbox.sendNotification("Price drop", "BMW 12000 -> 10500");
+        outbox.sendNotification("Price drop", "BMW 12000 -> 10500"); // price went back up and dropped again
+
+        verify(delivery, times(2)).sendNotificationAsync("Price drop", "BMW 12000 -> 10500");
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    @Test
+    void shouldNotReplayWhileDeliveryIsInFlight() {
+        when(delivery.sendNotificationAsync("Title", "Body")).thenReturn(new CompletableFuture<>());
+        DurableOutbox outbox = outbox();
+
+        outbox.sendNotification("Title", "Body");
+        outbox.replayPending();
+
+        verify(delivery, times(1)).sendNotificationAsync("Title", "Body");
+    }
+
+    @Test
+    void shouldRoundTripMultilineMessages() {
+        String message = "BMW X5\nhttps://www.mobile.bg/obiava-1\n\nAudi Q7\thttps://www.mobile.bg/obiava-2";
+        when(delivery.sendNotificationAsync("Title", message)).thenReturn(new CompletableFuture<>());
+        outbox().sendNotification("Title", message);
+
+        outbox().replayPending();
+
+        verify(delivery, times(2)).sendNotificationAsync("Title", message);
+    }
+
+    @Test
+    void shouldSkipTornRecord() throws Exception {
+        Files.writeString(tempDir.resolve("outbox.log"), "P\tabc\tVGl0bGU=");
+
+        DurableOutbox outbox = outbox();
+
+        assertEquals(0, outbox.pendingCount());
+        verify(logErrors).log(eq("bg.paskov.scanner.notification.DurableOutbox"), eq("WARN"), anyString(), isNull());
+    }
+}
@@ -12,7 +12,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
@@ -116,4 +119,27 @@ public class EmailSenderTest {
 
         assertThrows(MessagingException.class, () -> emailSender.testConnection());
     }
+
+    @Test
+    void sendNotificationAsyncRetryShouldDelegateToAsyncExecutor() {
+        emailSender = createSpyEmailSender(TypesNotifire.ASYNC_RETRY);
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+
+        try (var mockedExecutor = mockStatic(RetryExecutor.class)) {
+            mockedExecutor.when(() -> RetryExecutor.executeAsync(any(Runnable.class), eq(5), eq(2_000L), eq(60_000L), any(), eq("bg.paskov.scanner.notification.EmailSender"), eq("Send email"), eq(logErrors)))
+                    .thenReturn(pending);
+
+            assertSame(pending, emailSender.sendNotificationAsync("Subject", "Body"));
+        }
+    }
+
+    @Test
+    void sendNotificationAsyncRetryShouldDeliverInBackground() throws Exception {
+        emailSender = createSpyEmailSender(TypesNotifire.ASYNC_RETRY);
+        doNothing().when(emailSender).submitToSmtp(any(Message.class));
+
+        emailSender.sendNotificationAsync("Subject", "Body").get(5, TimeUnit.SECONDS);
+
+        verify(emailSender).submitToSmtp(any(Message.class));
+    }
 }
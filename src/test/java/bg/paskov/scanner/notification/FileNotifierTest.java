@@ -0,0 +1,36 @@
+package bg.paskov.scanner.notification;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileNotifierTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldAppendOneJsonObjectPerLine() throws Exception {
+        Path file = tempDir.resolve("notifications.ndjson");
+        FileNotifier notifier = new FileNotifier(file);
+
+        notifier.sendNotification("First", "BMW\nhttps://www.mobile.bg/obiava-1\n\n");
+        notifier.sendNotification("Second", "Audi");
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"time\":\""));
+        assertTrue(lines.get(0).endsWith("\"title\":\"First\",\"message\":\"BMW\\nhttps://www.mobile.bg/obiava-1\\n\\n\"}"));
+    }
+
+    @Test
+    void jsonStringShouldEscapeSpecialCharacters() {
+        assertEquals("\"say \\\"hi\\\"\\t\\\\ \\u0001\"", FileNotifier.jsonString("say \"hi\"\t\\ \u0001"));
+        assertEquals("null", FileNotifier.jsonString(null));
+    }
+}
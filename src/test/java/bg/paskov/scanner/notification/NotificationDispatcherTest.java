@@ -0,0 +1,119 @@
+package bg.paskov.scanner.notification;
+
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationDispatcherTest {
+
+    @Mock
+    private Notifiable delegate;
+
+    @Mock
+    private LogErrors logErrors;
+
+    private NotificationDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    @Test
+    void sendNotificationShouldReturnBeforeDelivery() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> delivery = CompletableFuture.runAsync(() -> awaitQuietly(release));
+        when(delegate.sendNotificationAsync("Title", "Body")).thenReturn(delivery);
+        dispatcher = new NotificationDispatcher(delegate, 10, 1, logErrors);
+        dispatcher.start();
+
+        CompletableFuture<Void> result = dispatcher.sendNotificationAsync("Title", "Body");
+
+        assertFalse(result.isDone());
+        release.countDown();
+        result.get(5, TimeUnit.SECONDS);
+        assertEquals(1, dispatcher.deliveredCount());
+    }
+
+    @Test
+    void shouldDeliverInEnqueueOrderWithSingleThread() throws Exception {
+        when(delegate.sendNotificationAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        dispatcher = new NotificationDispatcher(delegate, 10, 1, logErrors);
+        dispatcher.start();
+
+        dispatcher.sendNotification("First", "1");
+        dispatcher.sendNotificationAsync("Second", "2").get(5, TimeUnit.SECONDS);
+
+        var inOrder = inOrder(delegate);
+        inOrder.verify(delegate).sendNotificationAsync("First", "1");
+        inOrder.verify(delegate).sendNotificationAsync("Second", "2");
+    }
+
+    @Test
+    void shouldRejectWhenOutboxIsFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        lenient().when(delegate.sendNotificationAsync(anyString(), anyString()))
+                .thenReturn(CompletableFuture.runAsync(() -> awaitQuietly(release)));
+        dispatcher = new NotificationDispatcher(delegate, 1, 1, logErrors);
+        dispatcher.start();
+
+        // One in flight, one queued, the third does not fit
+        dispatcher.sendNotification("1", "");
+        verify(delegate, timeout(5_000)).sendNotificationAsync("1", "");
+        dispatcher.sendNotification("2", "");
+        CompletableFuture<Void> rejected = dispatcher.sendNotificationAsync("3", "");
+
+        assertTrue(rejected.isCompletedExceptionally());
+        verify(logErrors).log(eq("bg.paskov.scanner.notification.NotificationDispatcher"), eq("ERROR"), contains("dropped"), any());
+        release.countDown();
+    }
+
+    @Test
+    void failedDeliveryShouldBeLoggedAndReported() {
+        when(delegate.sendNotificationAsync("Title", "Body"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("SMTP down")));
+        dispatcher = new NotificationDispatcher(delegate, 10, 1, logErrors);
+        dispatcher.start();
+
+        CompletableFuture<Void> result = dispatcher.sendNotificationAsync("Title", "Body");
+
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.failedCount());
+        verify(logErrors).log(eq("bg.paskov.scanner.notification.NotificationDispatcher"), eq("ERROR"), contains("Title"), any());
+    }
+
+    @Test
+    void closeShouldDrainQueuedNotifications() {
+        when(delegate.sendNotificationAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        dispatcher = new NotificationDispatcher(delegate, 10, 1, logErrors);
+        dispatcher.start();
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.sendNotification("Title " + i, "Body");
+        }
+        dispatcher.close();
+
+        assertEquals(5, dispatcher.deliveredCount());
+        assertEquals(0, dispatcher.pending());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
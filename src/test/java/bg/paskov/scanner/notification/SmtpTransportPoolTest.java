@@ -0,0 +1,207 @@
+package bg.paskov.scanner.notification;
+
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SmtpTransportPoolTest {
+
+    @Mock
+    private Transport firstTransport;
+
+    @Mock
+    private Transport secondTransport;
+
+    @Mock
+    private SmtpTransportPool.TransportFactory transportFactory;
+
+    private Session session;
+
+    @BeforeEach
+    void setUp() {
+        session = Session.getInstance(new Properties());
+    }
+
+    private Message message(String subject) throws MessagingException {
+        Message message = new MimeMessage(session);
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse("to@example.com"));
+        message.setSubject(subject);
+        message.setText("Body");
+        return message;
+    }
+
+    @Test
+    void shouldReuseConnectionAcrossMessages() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport);
+        when(firstTransport.isConnected()).thenReturn(true);
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 60_000);
+
+        pool.send(message("First"));
+        pool.send(message("Second"));
+
+        verify(transportFactory, times(1)).create();
+        verify(firstTransport, times(1)).connect("user", "secret");
+        verify(firstTransport, times(2)).sendMessage(any(Message.class), any());
+    }
+
+    @Test
+    void closeShouldDisconnectIdleAndInUseConnections() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport);
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 60_000);
+        doAnswer(invocation -> {
+            pool.close(); // application shutting down mid-send
+            return null;
+        }).when(firstTransport).sendMessage(any(Message.class), any());
+
+        pool.send(message("First"));
+
+        verify(firstTransport).close();
+    }
+
+    @Test
+    void sendAllShouldUseSingleConnection() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport);
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 2, 60_000);
+
+        pool.sendAll(List.of(message("1"), message("2"), message("3")));
+
+        verify(firstTransport, times(1)).connect("user", "secret");
+        verify(firstTransport, times(3)).sendMessage(any(Message.class), any());
+    }
+
+    @Test
+    void shouldReconnectWhenReusedConnectionFailsNoop() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport, secondTransport);
+        when(firstTransport.isConnected()).thenReturn(false);
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 60_000);
+
+        pool.send(message("First"));
+        pool.send(message("Second"));
+
+        verify(firstTransport).close();
+        verify(firstTransport, times(1)).sendMessage(any(Message.class), any());
+        verify(secondTransport).sendMessage(any(Message.class), any());
+    }
+
+    @Test
+    void shouldResendWhenReusedConnectionClosedBeforeSending() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport, secondTransport);
+        when(firstTransport.isConnected()).thenReturn(true);
+        doNothing().doThrow(new IllegalStateException("Not connected"))
+                .when(firstTransport).sendMessage(any(Message.class), any());
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 60_000);
+
+        pool.send(message("First"));
+        pool.send(message("Second"));
+
+        verify(firstTransport).close();
+        verify(secondTransport).sendMessage(any(Message.class), any());
+    }
+
+    @Test
+    void shouldNotResendWhenSendFailsOnTheWire() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport);
+        doThrow(new MessagingException("421 connection closed"))
+                .when(firstTransport).sendMessage(any(Message.class), any());
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 60_000);
+        Message message = message("Subject");
+
+        assertThrows(MessagingException.class, () -> pool.send(message));
+        verify(firstTransport, times(1)).sendMessage(any(Message.class), any());
+        verify(firstTransport).close();
+        verify(transportFactory, times(1)).create();
+    }
+
+    @Test
+    void shouldLogInOnlyOnceWhenAuthenticationFails() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport);
+        doThrow(new AuthenticationFailedException("535 bad credentials")).when(firstTransport).connect("user", "secret");
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 60_000);
+        Message message = message("Subject");
+
+        assertThrows(AuthenticationFailedException.class, () -> pool.send(message));
+        verify(firstTransport, times(1)).connect("user", "secret");
+        verify(transportFactory, times(1)).create();
+    }
+
+    @Test
+    void shouldNotResendWhenRecipientsAreRejected() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport);
+        doThrow(new SendFailedException("550 no such user"))
+                .when(firstTransport).sendMessage(any(Message.class), any());
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 60_000);
+        Message message = message("Subject");
+
+        assertThrows(SendFailedException.class, () -> pool.send(message));
+        verify(transportFactory, times(1)).create();
+    }
+
+    @Test
+    void shouldReconnectAfterIdleTimeout() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport, secondTransport);
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 0);
+
+        pool.send(message("First"));
+        pool.send(message("Second"));
+
+        verify(firstTransport).close();
+        verify(secondTransport).sendMessage(any(Message.class), any());
+    }
+
+    @Test
+    void closeShouldDisconnectIdleConnections() throws MessagingException {
+        when(transportFactory.create()).thenReturn(firstTransport);
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 60_000);
+        pool.send(message("Subject"));
+
+        pool.close();
+
+        verify(firstTransport).close();
+    }
+
+    @Test
+    void recordsConnectAndSendEvents(@TempDir Path tempDir) throws Exception {
+        when(transportFactory.create()).thenReturn(firstTransport);
+        SmtpTransportPool pool = new SmtpTransportPool(transportFactory, "user", "secret", 1, 60_000);
+        Path dump = tempDir.resolve("smtp.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("bg.paskov.scanner.Smtp");
+            recording.start();
+
+            pool.send(message("Recorded"));
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertEquals(List.of("connect", "send"), events.stream().map(event -> event.getString("operation")).toList());
+        assertEquals(1, events.get(1).getInt("recipients"));
+        assertTrue(events.stream().allMatch(event -> event.getBoolean("succeeded")));
+    }
+}
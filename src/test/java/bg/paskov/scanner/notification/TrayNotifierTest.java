@@ -0,0 +1,48 @@
+package bg.paskov.scanner.notification;
+
+import bg.paskov.scanner.ui.TrayManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TrayNotifierTest {
+
+    @Mock
+    private TrayManager trayManager;
+
+    @Test
+    void shouldShowPopup() {
+        when(trayManager.displayMessage("Title", "BMW X5")).thenReturn(true);
+
+        new TrayNotifier(trayManager).sendNotification("Title", "BMW X5\n\n");
+
+        verify(trayManager).displayMessage("Title", "BMW X5");
+    }
+
+    @Test
+    void shouldTruncateLongMessages() {
+        when(trayManager.displayMessage(eq("Title"), argThat(text -> text.length() == TrayNotifier.MAX_TEXT_LENGTH))).thenReturn(true);
+
+        new TrayNotifier(trayManager).sendNotification("Title", "x".repeat(1_000));
+
+        verify(trayManager).displayMessage(eq("Title"), argThat(text -> text.endsWith("…")));
+    }
+
+    @Test
+    void shouldFailWhenTrayIsUnavailable() {
+        when(trayManager.displayMessage("Title", "Body")).thenReturn(false);
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> new TrayNotifier(trayManager).sendNotification("Title", "Body"));
+        assertEquals("System tray is not available", failure.getMessage());
+    }
+}
@@ -0,0 +1,169 @@
+package bg.paskov.scanner.query;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class AdvertisementHistoryTest {
+
+    private static final String BMW = "https://www.mobile.bg/obiavi/bmw";
+    private static final String AUDI = "https://www.mobile.bg/obiavi/audi";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private LogErrors logErrors;
+
+    private MutableClock clock;
+    private Path journal;
+    private AdvertisementHistory history;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-01T10:00:00Z"));
+        journal = tempDir.resolve("history.log");
+        history = new AdvertisementHistory(journal, clock, logErrors);
+    }
+
+    private List<Long> ids(List<HistoryEntry> entries) {
+        return entries.stream().map(HistoryEntry::id).toList();
+    }
+
+    @Test
+    void keepsFirstSightingOfAnId() {
+        history.advertisementsSaved(BMW, List.of(new Advertisement(1, "BMW 320d")));
+        clock.now = clock.now.plusSeconds(60);
+        history.advertisementsSaved(AUDI, List.of(new Advertisement(1, "BMW 320d"), new Advertisement(2, "Audi A4")));
+
+        HistoryEntry first = history.snapshot().byId(1).orElseThrow();
+        assertEquals(BMW, first.searchUrl());
+        assertEquals(Instant.parse("2026-01-01T10:00:00Z"), first.firstSeen());
+        assertEquals(2, history.size());
+    }
+
+    @Test
+    void queriesByTitleSubstringCaseInsensitively() {
+        history.advertisementsSaved(BMW, List.of(
+                new Advertisement(1, "BMW 320d Touring"),
+                new Advertisement(2, "BMW X5"),
+                new Advertisement(3, "bmw 320i")
+        ));
+
+        AdvertisementHistory.Snapshot snapshot = history.snapshot();
+
+        assertEquals(List.of(3L, 1L), ids(snapshot.query(new HistoryQuery("320", null, null, null, 0))));
+        assertEquals(List.of(2L), ids(snapshot.query(new HistoryQuery("x5", null, null, null, 0))));
+        assertEquals(List.of(), ids(snapshot.query(new HistoryQuery("golf", null, null, null, 0))));
+    }
+
+    @Test
+    void queriesByTimeRangeAndSearchUrl() {
+        history.advertisementsSaved(BMW, List.of(new Advertisement(1, "BMW 1")));
+        clock.now = Instant.parse("2026-01-01T11:00:00Z");
+        history.advertisementsSaved(AUDI, List.of(new Advertisement(2, "Audi 2")));
+        clock.now = Instant.parse("2026-01-01T12:00:00Z");
+        history.advertisementsSaved(BMW, List.of(new Advertisement(3, "BMW 3")));
+
+        AdvertisementHistory.Snapshot snapshot = history.snapshot();
+
+        assertEquals(List.of(2L), ids(snapshot.query(new HistoryQuery(null,
+                Instant.parse("2026-01-01T10:30:00Z"), Instant.parse("2026-01-01T12:00:00Z"), null, 0))));
+        assertEquals(List.of(3L, 1L), ids(snapshot.query(new HistoryQuery(null, null, null, BMW, 0))));
+        assertEquals(List.of(3L), ids(snapshot.query(new HistoryQuery("bmw", Instant.parse("2026-01-01T11:00:00Z"), null, BMW, 0))));
+        assertEquals(List.of(3L), ids(snapshot.query(new HistoryQuery(null, null, null, null, 1))));
+    }
+
+    @Test
+    void snapshotDoesNotSeeLaterScans() {
+        history.advertisementsSaved(BMW, List.of(new Advertisement(1, "BMW 1")));
+        AdvertisementHistory.Snapshot snapshot = history.snapshot();
+
+        history.advertisementsSaved(BMW, List.of(new Advertisement(2, "BMW 2")));
+
+        assertEquals(1, snapshot.size());
+        assertTrue(snapshot.byId(2).isEmpty());
+        assertEquals(List.of(1L), ids(snapshot.query(new HistoryQuery("bmw", null, null, BMW, 0))));
+        assertEquals(List.of(2L, 1L), ids(history.snapshot().query(new HistoryQuery("bmw", null, null, BMW, 0))));
+    }
+
+    @Test
+    void firstSeenTimesStayOrderedWhenTheClockStepsBack() {
+        history.advertisementsSaved(BMW, List.of(new Advertisement(1, "BMW 1")));
+        clock.now = clock.now.minusSeconds(3600);
+        history.advertisementsSaved(BMW, List.of(new Advertisement(2, "BMW 2")));
+
+        assertEquals(Instant.parse("2026-01-01T10:00:00Z"), history.snapshot().byId(2).orElseThrow().firstSeen());
+    }
+
+    @Test
+    void reloadsFromJournalAndSkipsTornLines() throws Exception {
+        history.advertisementsSaved(BMW, List.of(new Advertisement(1, "BMW\t320d"), new Advertisement(2, "Ауди А4")));
+        Files.writeString(journal, Files.readString(journal) + "17000\t3\tdHJ1bmM", StandardOpenOption.TRUNCATE_EXISTING);
+
+        AdvertisementHistory reloaded = new AdvertisementHistory(journal, clock, logErrors);
+
+        assertEquals(2, reloaded.size());
+        assertEquals("BMW\t320d", reloaded.snapshot().byId(1).orElseThrow().title());
+        assertEquals(List.of(2L), ids(reloaded.snapshot().query(new HistoryQuery("ауди", null, null, BMW, 0))));
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        for (int batch = 0; batch < 30; batch++) {
+            List<Advertisement> advertisements = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                long id = batch * 100L + i;
+                advertisements.add(new Advertisement(id, "Car " + id));
+            }
+            history.advertisementsSaved(BMW, advertisements);
+        }
+
+        assertEquals(3000, history.size());
+        assertEquals("Car 2999", history.snapshot().byId(2999).orElseThrow().title());
+        assertEquals(List.of(2999L), ids(history.snapshot().query(new HistoryQuery("car 2999", null, null, null, 0))));
+    }
+
+    // Clock whose time the test moves by hand
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package bg.paskov.scanner.query;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class ObservationStoreTest {
+
+    private static final String BMW = "https://www.mobile.bg/obiavi/bmw";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private LogErrors logErrors;
+
+    private MutableClock clock;
+    private Path directory;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-01T10:00:00Z"));
+        directory = tempDir.resolve("observations");
+    }
+
+    private static Advertisement ad(long id, int price) {
+        return new Advertisement(id, "Car " + id, price, 2016, 90_000, "Дизелов", null);
+    }
+
+    private List<Integer> prices(List<Observation> observations) {
+        return observations.stream().map(Observation::price).toList();
+    }
+
+    @Test
+    void keepsPriceSeriesOfAnAdAcrossDays() {
+        ObservationStore store = new ObservationStore(directory, clock, 0, logErrors);
+        store.advertisementsObserved(BMW, List.of(ad(1, 12_000), ad(2, 8_000)));
+        clock.now = clock.now.plus(Duration.ofHours(20));
+        store.advertisementsObserved(BMW, List.of(ad(1, 11_500), ad(2, 8_000)));
+        clock.now = clock.now.plus(Duration.ofHours(20));
+        store.advertisementsObserved(BMW, List.of(ad(1, 10_900)));
+
+        assertEquals(List.of(12_000, 11_500, 10_900), prices(store.observations(1, null, null)));
+        assertEquals(List.of(8_000, 8_000), prices(store.observations(2, null, null)));
+        assertTrue(Files.exists(directory.resolve("obs-2026-01-01.seg")));
+        assertTrue(Files.exists(directory.resolve("obs-2026-01-01.rollup")));
+        assertFalse(Files.exists(directory.resolve("obs-2026-01-01.log")));
+        verifyNoInteractions(logErrors);
+    }
+
+    @Test
+    void summaryCombinesDailyRollupsWithCurrentDay() {
+        ObservationStore store = new ObservationStore(directory, clock, 0, logErrors);
+        store.advertisementsObserved(BMW, List.of(ad(1, 12_000)));
+        clock.now = clock.now.plus(Duration.ofHours(1));
+        store.advertisementsObserved(BMW, List.of(ad(1, Advertisement.UNKNOWN)));
+        clock.now = clock.now.plus(Duration.ofDays(2));
+        store.advertisementsObserved(BMW, List.of(ad(1, 10_900)));
+
+        ListingSummary summary = store.summary(1).orElseThrow();
+
+        assertEquals(Instant.parse("2026-01-01T10:00:00Z"), summary.firstSeen());
+        assertEquals(Instant.parse("2026-01-03T11:00:00Z"), summary.lastSeen());
+        assertEquals(Duration.ofHours(49), summary.listedFor());
+        assertEquals(3, summary.observations());
+        assertEquals(10_900, summary.minPrice());
+        assertEquals(12_000, summary.maxPrice());
+        assertEquals(10_900, summary.lastPrice());
+        assertTrue(store.summary(2).isEmpty());
+    }
+
+    @Test
+    void queriesByTimeReadOnlyTheDaysInRange() {
+        ObservationStore store = new ObservationStore(directory, clock, 0, logErrors);
+        store.advertisementsObserved(BMW, List.of(ad(2, 2)));
+        clock.now = clock.now.plusSeconds(1);
+        store.advertisementsObserved(BMW, List.of(ad(1, 1)));
+        clock.now = clock.now.plus(Duration.ofDays(1)).minusSeconds(1);
+        store.advertisementsObserved(BMW, List.of(ad(3, 3)));
+        clock.now = clock.now.plus(Duration.ofDays(1));
+        store.advertisementsObserved(BMW, List.of(ad(4, 4)));
+
+        assertEquals(List.of(2, 1), prices(store.observationsBetween(null, Instant.parse("2026-01-02T00:00:00Z"))));
+        assertEquals(List.of(3, 4), prices(store.observationsBetween(Instant.parse("2026-01-02T10:00:00Z"), null)));
+        assertEquals(List.of(3), prices(store.observationsBetween(
+                Instant.parse("2026-01-02T00:00:00Z"), Instant.parse("2026-01-03T10:00:00Z"))));
+        assertEquals(List.of(1), prices(store.observations(1, Instant.parse("2026-01-01T10:00:01Z"), Instant.parse("2026-01-01T10:00:02Z"))));
+    }
+
+    @Test
+    void reloadsCurrentDayAndRollsUpPastDaysOnStartup() {
+        new ObservationStore(directory, clock, 0, logErrors).advertisementsObserved(BMW, List.of(ad(1, 12_000)));
+
+        ObservationStore sameDay = new ObservationStore(directory, clock, 0, logErrors);
+        assertEquals(List.of(12_000), prices(sameDay.observations(1, null, null)));
+        assertTrue(Files.exists(directory.resolve("obs-2026-01-01.log")));
+
+        clock.now = clock.now.plus(Duration.ofDays(1));
+        ObservationStore nextDay = new ObservationStore(directory, clock, 0, logErrors);
+
+        assertFalse(Files.exists(directory.resolve("obs-2026-01-01.log")));
+        assertEquals(List.of(12_000), prices(nextDay.observations(1, null, null)));
+        assertEquals(1, nextDay.summary(1).orElseThrow().observations());
+    }
+
+    @Test
+    void appendsAfterTornRecordStayAlignedAcrossRestarts() throws Exception {
+        new ObservationStore(directory, clock, 0, logErrors).advertisementsObserved(BMW, List.of(ad(1, 12_000)));
+        Files.write(directory.resolve("obs-2026-01-01.log"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        clock.now = clock.now.plus(Duration.ofHours(1));
+
+        new ObservationStore(directory, clock, 0, logErrors).advertisementsObserved(BMW, List.of(ad(1, 11_000)));
+        ObservationStore reloaded = new ObservationStore(directory, clock, 0, logErrors);
+
+        assertEquals(List.of(12_000, 11_000), prices(reloaded.observations(1, null, null)));
+        verifyNoInteractions(logErrors);
+    }
+
+    @Test
+    void dropsExpiredRawDaysButKeepsRollups() {
+        ObservationStore store = new ObservationStore(directory, clock, 2, logErrors);
+        store.advertisementsObserved(BMW, List.of(ad(1, 12_000)));
+        clock.now = clock.now.plus(Duration.ofDays(3));
+        store.advertisementsObserved(BMW, List.of(ad(1, 11_000)));
+
+        assertFalse(Files.exists(directory.resolve("obs-2026-01-01.seg")));
+        assertEquals(List.of(11_000), prices(store.observations(1, null, null)));
+        ListingSummary summary = store.summary(1).orElseThrow();
+        assertEquals(2, summary.observations());
+        assertEquals(Instant.parse("2026-01-01T10:00:00Z"), summary.firstSeen());
+    }
+
+    @Test
+    void skipsRawDayDeletedWhileQueryIsReading() throws Exception {
+        ObservationStore store = new ObservationStore(directory, clock, 0, logErrors);
+        store.advertisementsObserved(BMW, List.of(ad(1, 12_000)));
+        clock.now = clock.now.plus(Duration.ofDays(1));
+        store.advertisementsObserved(BMW, List.of(ad(1, 11_000)));
+
+        // Queries read past days outside the lock, after the retention may have removed them
+        Files.delete(directory.resolve("obs-2026-01-01.seg"));
+
+        assertEquals(List.of(11_000), prices(store.observations(1, null, null)));
+        assertEquals(List.of(11_000), prices(store.observationsBetween(null, null)));
+        verifyNoInteractions(logErrors);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
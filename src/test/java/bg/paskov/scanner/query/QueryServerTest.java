@@ -0,0 +1,127 @@
+package bg.paskov.scanner.query;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class QueryServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private LogErrors logErrors;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private QueryServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AdvertisementHistory history = new AdvertisementHistory(tempDir.resolve("history.log"), logErrors);
+        history.advertisementsSaved("https://www.mobile.bg/obiavi/bmw", List.of(
+                new Advertisement(101, "BMW \"320d\""),
+                new Advertisement(102, "BMW X5")
+        ));
+        ObservationStore observations = new ObservationStore(tempDir.resolve("observations"), logErrors);
+        observations.advertisementsObserved("https://www.mobile.bg/obiavi/bmw", List.of(
+                new Advertisement(101, "BMW \"320d\"", 12_000, 2016, 90_000, "Дизелов", null)
+        ));
+        server = new QueryServer(history, observations, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> get(String pathAndQuery) throws Exception {
+        return client.send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + pathAndQuery)).build(),
+                HttpResponse.BodyHandlers.ofString()
+        );
+    }
+
+    @Test
+    void returnsAdvertisementById() throws Exception {
+        HttpResponse<String> response = get("/ads/101");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(QueryServer.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElse(null));
+        assertTrue(response.body().startsWith("{\"id\":101,\"title\":\"BMW \\\"320d\\\"\",\"link\":\"https://www.mobile.bg/obiava-101\""));
+    }
+
+    @Test
+    void unknownIdIsNotFound() throws Exception {
+        assertEquals(404, get("/ads/999").statusCode());
+        assertEquals(400, get("/ads/abc").statusCode());
+    }
+
+    @Test
+    void returnsObservationsOfAnAdvertisement() throws Exception {
+        HttpResponse<String> response = get("/ads/101/observations");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"id\":101,\"summary\":{\"firstSeen\":"));
+        assertTrue(response.body().contains("\"observations\":1,\"minPrice\":12000,\"maxPrice\":12000,\"lastPrice\":12000}"));
+        assertTrue(response.body().contains("\"price\":12000,\"fingerprint\":\""));
+        assertEquals(404, get("/ads/102/observations").statusCode());
+        assertEquals(400, get("/ads/observations").statusCode());
+        assertEquals(400, get("/ads//observations").statusCode());
+    }
+
+    @Test
+    void malformedEscapeIsBadRequest() throws Exception {
+        assertEquals("HTTP/1.1 400 Bad Request", rawStatusLine("/ads?title=%"));
+        assertEquals("HTTP/1.1 400 Bad Request", rawStatusLine("/ads/101/observations?from=%"));
+    }
+
+    // java.net.URI refuses a malformed escape, so write the request by hand
+    private String rawStatusLine(String target) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            socket.getOutputStream().write(("GET " + target + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+        }
+    }
+
+    @Test
+    void filtersByTitleAndSearch() throws Exception {
+        HttpResponse<String> response = get("/ads?title=x5&search=https%3A%2F%2Fwww.mobile.bg%2Fobiavi%2Fbmw");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"watermark\":2,\"count\":1,\"items\":[{\"id\":102,"));
+    }
+
+    @Test
+    void rejectsInvalidTimeRange() throws Exception {
+        assertEquals(400, get("/ads?from=yesterday").statusCode());
+    }
+
+    @Test
+    void parsesQueryParameters() {
+        assertEquals(Map.of("title", "bmw 320", "limit", "5", "flag", ""), QueryServer.parameters("title=bmw+320&limit=5&flag"));
+    }
+}
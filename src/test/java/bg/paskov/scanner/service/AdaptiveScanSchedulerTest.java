@@ -0,0 +1,125 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AdaptiveScanSchedulerTest {
+
+    private static final String URL = "https://www.mobile.bg/obiavi/avtomobili-dzhipove/bmw";
+    private static final long MIN = 60_000;
+    private static final long MAX = 3_600_000;
+
+    @Mock
+    private ScannerPool scannerPool;
+
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Mock
+    private LogErrors logErrors;
+
+    private MutableClock clock;
+    private AdaptiveScanScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-10-18T12:00:00Z"));
+        scheduler = new AdaptiveScanScheduler(scannerPool, scheduledExecutorService, MIN, MAX, clock, logErrors);
+    }
+
+    @Test
+    void startShouldScheduleEverySearchImmediately() {
+        when(scannerPool.urls()).thenReturn(Set.of(URL, URL + "/audi"));
+
+        scheduler.start();
+
+        verify(scheduledExecutorService, times(2)).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void firstScanShouldUseMiddleIntervalUntilRateIsKnown() {
+        long delay = scheduler.recordScan(URL, 25);
+
+        assertEquals((long) Math.sqrt((double) MIN * MAX), delay);
+    }
+
+    @Test
+    void busySearchShouldPollMoreOften() {
+        scheduler.recordScan(URL, 0);
+        clock.advance(Duration.ofMinutes(10));
+
+        long delay = scheduler.recordScan(URL, 5); // 30 ads per hour
+
+        assertEquals(MIN, delay);
+    }
+
+    @Test
+    void quietSearchShouldBackOffToMaximum() {
+        scheduler.recordScan(URL, 0);
+        clock.advance(Duration.ofMinutes(30));
+
+        assertEquals(MAX, scheduler.recordScan(URL, 0));
+    }
+
+    @Test
+    void nextIntervalShouldTargetHalfAnAdPerScan() {
+        assertEquals(TimeUnit.MINUTES.toMillis(15), scheduler.nextInterval(2.0));
+        assertEquals(MIN, scheduler.nextInterval(1_000));
+        assertEquals(MAX, scheduler.nextInterval(0.01));
+    }
+
+    @Test
+    void scanAndRescheduleShouldRescheduleEvenWhenScanFails() {
+        when(scannerPool.scan(URL)).thenThrow(new IllegalStateException("boom"));
+
+        scheduler.scanAndReschedule(URL);
+
+        verify(logErrors).log(eq("bg.paskov.scanner.service.AdaptiveScanScheduler"), eq("ERROR"), contains(URL), any());
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(MAX), eq(TimeUnit.MILLISECONDS));
+    }
+
+    // Clock that tests can move forward
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public java.time.ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
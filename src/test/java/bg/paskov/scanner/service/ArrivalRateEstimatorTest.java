@@ -0,0 +1,61 @@
+package bg.paskov.scanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArrivalRateEstimatorTest {
+
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    void shouldStartWithoutRate() {
+        ArrivalRateEstimator estimator = new ArrivalRateEstimator();
+
+        assertEquals(0, estimator.samples());
+        assertEquals(0.0, estimator.expectedRatePerHour(12));
+    }
+
+    @Test
+    void firstObservationShouldSetRate() {
+        ArrivalRateEstimator estimator = new ArrivalRateEstimator();
+
+        estimator.observe(3, 30 * 60_000, 10);
+
+        assertEquals(6.0, estimator.expectedRatePerHour(10), 1e-9);
+    }
+
+    @Test
+    void quietScansShouldDecayRate() {
+        ArrivalRateEstimator estimator = new ArrivalRateEstimator();
+        estimator.observe(4, ONE_HOUR, 10);
+
+        for (int i = 0; i < 10; i++) {
+            estimator.observe(0, ONE_HOUR, 10);
+        }
+
+        assertTrue(estimator.expectedRatePerHour(10) < 0.2);
+    }
+
+    @Test
+    void shouldLearnTimeOfDayPattern() {
+        ArrivalRateEstimator estimator = new ArrivalRateEstimator();
+
+        for (int day = 0; day < 5; day++) {
+            estimator.observe(10, ONE_HOUR, 20); // busy evenings
+            estimator.observe(0, ONE_HOUR, 4);   // quiet nights
+        }
+
+        assertTrue(estimator.expectedRatePerHour(20) > estimator.expectedRatePerHour(4));
+    }
+
+    @Test
+    void hourWithoutDataShouldUseOverallRate() {
+        ArrivalRateEstimator estimator = new ArrivalRateEstimator();
+        estimator.observe(2, ONE_HOUR, 9);
+
+        assertEquals(2.0, estimator.expectedRatePerHour(15), 1e-9);
+    }
+}
@@ -0,0 +1,73 @@
+package bg.paskov.scanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HostRateLimiterTest {
+
+    private static final String BMW = "https://www.mobile.bg/obiavi/avtomobili-dzhipove/bmw";
+    private static final String AUDI = "https://www.mobile.bg/obiavi/avtomobili-dzhipove/audi";
+
+    private long now;
+
+    @Test
+    void shouldAllowBurstWithoutWaiting() {
+        HostRateLimiter limiter = new HostRateLimiter(2, 3, () -> now);
+
+        assertEquals(0, limiter.reserve(BMW));
+        assertEquals(0, limiter.reserve(BMW));
+        assertEquals(0, limiter.reserve(BMW));
+    }
+
+    @Test
+    void shouldSpaceRequestsOnceBurstIsUsed() {
+        HostRateLimiter limiter = new HostRateLimiter(2, 1, () -> now);
+
+        assertEquals(0, limiter.reserve(BMW));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.reserve(BMW));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1_000), limiter.reserve(BMW));
+    }
+
+    @Test
+    void shouldShareBucketAcrossSearchesOfSameHost() {
+        HostRateLimiter limiter = new HostRateLimiter(1, 1, () -> now);
+
+        assertEquals(0, limiter.reserve(BMW));
+        assertTrue(limiter.reserve(AUDI) > 0);
+        assertEquals(0, limiter.reserve("https://www.cars.bg/search"));
+    }
+
+    @Test
+    void shouldRefillOverTime() {
+        HostRateLimiter limiter = new HostRateLimiter(2, 1, () -> now);
+        limiter.reserve(BMW);
+
+        now += TimeUnit.MILLISECONDS.toNanos(500);
+
+        assertEquals(0, limiter.reserve(BMW));
+    }
+
+    @Test
+    void unlimitedShouldNeverWait() {
+        HostRateLimiter limiter = HostRateLimiter.unlimited();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.acquire(BMW).isDone());
+        }
+    }
+
+    @Test
+    void acquireShouldCompleteAfterWait() throws Exception {
+        HostRateLimiter limiter = new HostRateLimiter(20, 1);
+        limiter.acquire(BMW);
+
+        CompletableFuture<Void> second = limiter.acquire(BMW);
+
+        assertFalse(second.isDone());
+        second.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,170 @@
+package bg.paskov.scanner.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpPageFetcherTest {
+
+    private static final Charset WINDOWS_1251 = Charset.forName("windows-1251");
+    private static final String PAGE = "<html><body><div class=\"item\"><div class=\"zaglavie\">"
+            + "<a href=\"/obiava-11761234567890123-bmw\">БМВ X5</a></div></div></body></html>";
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicReference<String> lastIfNoneMatch = new AtomicReference<>();
+    private final AtomicReference<String> lastAcceptEncoding = new AtomicReference<>();
+    private final CountDownLatch releaseStalled = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gzip", exchange -> {
+            lastAcceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=windows-1251");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            respond(exchange, 200, gzip(PAGE.getBytes(WINDOWS_1251)));
+        });
+        server.createContext("/meta", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/html");
+            String html = "<html><head><meta charset=\"windows-1251\"></head>" + PAGE.substring(6);
+            respond(exchange, 200, html.getBytes(WINDOWS_1251));
+        });
+        server.createContext("/conditional", exchange -> {
+            lastIfNoneMatch.set(exchange.getRequestHeaders().getFirst("If-None-Match"));
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+        });
+        server.createContext("/large", exchange -> respond(exchange, 200, new byte[64 * 1024]));
+        server.createContext("/stalled", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write("<html><body>".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            try {
+                releaseStalled.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/missing", exchange -> respond(exchange, 404, "Not found".getBytes(StandardCharsets.UTF_8)));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseStalled.countDown();
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private HttpPageFetcher fetcher(long maxBodyBytes) {
+        return new HttpPageFetcher(Duration.ofSeconds(5), Duration.ofSeconds(5), maxBodyBytes);
+    }
+
+    @Test
+    void shouldDecompressGzipAndDecodeDeclaredCharset() throws IOException {
+        Document document = fetcher(1_000_000).fetch(baseUrl + "/gzip", Map.of()).parse();
+
+        assertEquals("gzip, deflate", lastAcceptEncoding.get());
+        assertEquals("БМВ X5", document.selectFirst(".zaglavie a").text());
+    }
+
+    @Test
+    void shouldSniffCharsetFromMetaTag() throws IOException {
+        FetchedPage page = fetcher(1_000_000).fetch(baseUrl + "/meta", Map.of());
+
+        assertEquals(WINDOWS_1251, page.charset());
+        assertEquals("БМВ X5", page.parse().selectFirst(".zaglavie a").text());
+    }
+
+    @Test
+    void shouldStreamParseBody() throws IOException {
+        try (var parser = fetcher(1_000_000).fetch(baseUrl + "/gzip", Map.of()).streamParser()) {
+            assertEquals("БМВ X5", parser.selectNext(".zaglavie a").text());
+        }
+    }
+
+    @Test
+    void shouldSendConditionalHeadersAndReturnNotModified() throws IOException {
+        FetchedPage page = fetcher(1_000_000).fetch(baseUrl + "/conditional", Map.of("If-None-Match", "\"v1\""));
+
+        assertEquals(304, page.statusCode());
+        assertEquals("\"v1\"", page.header("etag"));
+        assertEquals("\"v1\"", lastIfNoneMatch.get());
+        page.close();
+    }
+
+    @Test
+    void shouldAbortBodyLargerThanLimit() throws IOException {
+        FetchedPage page = fetcher(16 * 1024).fetch(baseUrl + "/large", Map.of());
+
+        IOException failure = assertThrows(IOException.class, page::parse);
+        assertTrue(failure.getMessage().contains("exceeds"));
+    }
+
+    @Test
+    void shouldTimeOutBodyThatStallsAfterHeaders() throws IOException {
+        FetchedPage page = new HttpPageFetcher(Duration.ofSeconds(5), Duration.ofMillis(500), 1_000_000)
+                .fetch(baseUrl + "/stalled", Map.of());
+
+        long start = System.nanoTime();
+        IOException failure = assertThrows(IOException.class, page::parse);
+
+        assertTrue(failure.getMessage().contains("Timed out"), failure.getMessage());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    void shouldFailOnHttpErrorStatus() {
+        IOException failure = assertThrows(IOException.class, () -> fetcher(1_000_000).fetch(baseUrl + "/missing", Map.of()));
+
+        assertTrue(failure.getMessage().contains("404"));
+    }
+
+    @Test
+    void charsetOfShouldReadContentTypeParameter() {
+        assertEquals(WINDOWS_1251, HttpPageFetcher.charsetOf(Optional.of("text/html; charset=\"windows-1251\"")));
+        assertNull(HttpPageFetcher.charsetOf(Optional.of("text/html")));
+        assertNull(HttpPageFetcher.charsetOf(Optional.of("text/html; charset=unknown-x")));
+    }
+}
@@ -1,8 +1,20 @@
 package bg.paskov.scanner.service;
 
+import bg.paskov.scanner.filter.FilterExpression;
 import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.model.AdvertisementChange;
 import bg.paskov.scanner.notification.Notifiable;
+import bg.paskov.scanner.storage.AdvertisementJournal;
+import bg.paskov.scanner.storage.JournalSeenStore;
+import bg.paskov.scanner.storage.SeenStore;
 import bg.paskov.scanner.util.LogErrors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,14 +22,18 @@ import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -35,17 +51,13 @@ public class MobileBgScannerTest {
 
     private MobileBgScanner mobileBgScanner;
     private Path tempOldAdvertisementsPath;
+    private SeenStore seenStore;
 
     @BeforeEach
     void setUp() {
         tempOldAdvertisementsPath = tempDir.resolve("old_advertisements.csv");
-        mobileBgScanner = new MobileBgScanner("https://example.com", notifiable, logErrors, tempOldAdvertisementsPath);
-    }
-
-    private void invokeLoadOldAdvertisements(MobileBgScanner scanner) throws Exception {
-        Method method = MobileBgScanner.class.getDeclaredMethod("loadOldAdvertisements");
-        method.setAccessible(true);
-        method.invoke(scanner);
+        seenStore = new JournalSeenStore(new AdvertisementJournal(tempOldAdvertisementsPath, logErrors));
+        mobileBgScanner = new MobileBgScanner("https://example.com", notifiable, logErrors, seenStore, ScanSettings.defaults());
     }
 
     private void invokeCompareOldAndNewAdvertisements(MobileBgScanner scanner) throws Exception {
@@ -68,86 +80,431 @@ public class MobileBgScannerTest {
     }
 
     @Test
-    void loadOldAdvertisementsShouldDoNothingWhenFileIsMissing() throws Exception {
-        invokeLoadOldAdvertisements(mobileBgScanner);
+    void saveNewAdvertisementsShouldCreateFileWithCorrectContent() throws Exception {
+        getSetField("newAdvertisements").add(new Advertisement(111, "Opel Astra"));
+        getSetField("newAdvertisements").add(new Advertisement(222, "BMW 320"));
+
+        invokeSaveNewAdvertisements(mobileBgScanner);
 
-        verifyNoInteractions(logErrors);
-        assertTrue(getSetField("oldAdvertisements").isEmpty());
+        List<String> actualLines = Files.readAllLines(tempOldAdvertisementsPath);
+
+        List<String> expectedLines = List.of(
+                "111,https://www.mobile.bg/obiava-111,Opel Astra",
+                "222,https://www.mobile.bg/obiava-222,BMW 320"
+        );
+
+        assertEquals(expectedLines, actualLines);
     }
 
     @Test
-    void loadOldAdvertisementsShouldLoadAllFromFile() throws Exception {
-        Files.writeString(tempOldAdvertisementsPath, "111,https://example.com/obiava-111,Opel Astra");
+    void saveNewAdvertisementsShouldSkipAlreadySeenAds() throws Exception {
+        seenStore.addAll(List.of(new Advertisement(111, "Opel Astra")));
+        getSetField("newAdvertisements").add(new Advertisement(111, "Opel Astra"));
+        getSetField("newAdvertisements").add(new Advertisement(222, "BMW 320"));
 
-        invokeLoadOldAdvertisements(mobileBgScanner);
+        invokeSaveNewAdvertisements(mobileBgScanner);
 
-        assertEquals(1, getSetField("oldAdvertisements").size());
+        assertEquals(2, Files.readAllLines(tempOldAdvertisementsPath).size());
+        assertTrue(seenStore.contains(222));
     }
 
     @Test
-    void loadOldAdvertisementsShouldLoadAllLinesFromFile() throws Exception {
-        Files.writeString(tempOldAdvertisementsPath, "111,https://example.com/obiava-111,Opel Astra\n" +
-                "112,https://example.com/obiava-112,Opel Kadet");
+    void saveNewAdvertisementsShouldNotTouchJournalWhenNoAds() throws Exception {
 
-        invokeLoadOldAdvertisements(mobileBgScanner);
+        invokeSaveNewAdvertisements(mobileBgScanner);
 
-        assertEquals(2, getSetField("oldAdvertisements").size());
+        assertFalse(Files.exists(tempOldAdvertisementsPath));
     }
 
     @Test
-    void loadOldAdvertisementsShouldSkipMalformedLines() throws Exception {
-        Files.writeString(tempOldAdvertisementsPath, "111 Opel Astra,https://example.com/obiava-111");
+    void compareShouldNotNotifyWhenNoNewAds() throws Exception {
+        getSetField("newAdvertisements").add(new Advertisement(111, "Opel Astra"));
+        seenStore.addAll(List.of(new Advertisement(111, "Opel Astra")));
 
-        invokeLoadOldAdvertisements(mobileBgScanner);
+        invokeCompareOldAndNewAdvertisements(mobileBgScanner);
 
-        assertTrue(getSetField("oldAdvertisements").isEmpty());
-        verify(logErrors).log(anyString(), eq("WARN"), anyString(), isNull());
+        verify(notifiable, never()).sendNotification(anyString(), anyString());
     }
 
     @Test
-    void saveNewAdvertisementsShouldCreateFileWithCorrectContent() throws Exception {
-        getSetField("newAdvertisements").add(new Advertisement("Opel Astra", "https://example.com/obiava-111", "111"));
-        getSetField("newAdvertisements").add(new Advertisement("BMW 320", "https://example.com/obiava-222", "222"));
+    void compareShouldNotifyWhenNewAdIsFound() throws Exception {
+        getSetField("newAdvertisements").add(new Advertisement(111, "Opel Astra"));
 
-        invokeSaveNewAdvertisements(mobileBgScanner);
+        invokeCompareOldAndNewAdvertisements(mobileBgScanner);
 
-        List<String> actualLines = Files.readAllLines(tempOldAdvertisementsPath);
+        verify(notifiable).sendNotification(anyString(), anyString());
+
+    }
+
+    // Build a results page with one div.item per ad ID
+    private FetchedPage page(long... ids) throws Exception {
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (long id : ids) {
+            html.append("<div class=\"item\"><div class=\"zaglavie\"><a href=\"/obiava-")
+                    .append(id).append("-car\">Car ").append(id).append("</a></div></div>");
+        }
+        html.append("<div class=\"item fakti\"><div class=\"zaglavie\"><a href=\"/obiava-1\">Ad</a></div></div>");
+        html.append("</body></html>");
+
+        FetchedPage response = mock(FetchedPage.class);
+        lenient().when(response.parse()).thenReturn(Jsoup.parse(html.toString(), "https://www.mobile.bg/"));
+        lenient().when(response.streamParser()).thenReturn(new StreamParser(Parser.htmlParser()).parse(html.toString(), "https://www.mobile.bg/"));
+        return response;
+    }
+
+    @Test
+    void pageUrlShouldReturnBaseUrlForFirstPage() {
+        assertEquals("https://www.mobile.bg/obiavi/bmw?sort=6", MobileBgScanner.pageUrl("https://www.mobile.bg/obiavi/bmw?sort=6", 1));
+    }
+
+    @Test
+    void pageUrlShouldInsertPageBeforeQuery() {
+        assertEquals("https://www.mobile.bg/obiavi/bmw/p-3?sort=6", MobileBgScanner.pageUrl("https://www.mobile.bg/obiavi/bmw/?sort=6", 3));
+    }
+
+    @Test
+    void pageUrlShouldReplaceExistingPage() {
+        assertEquals("https://www.mobile.bg/obiavi/bmw/p-2", MobileBgScanner.pageUrl("https://www.mobile.bg/obiavi/bmw/p-5", 2));
+    }
+
+    @Test
+    void scanShouldCrawlNextPagesUntilKnownAdIsFound() throws Exception {
+        Files.writeString(tempOldAdvertisementsPath, "300,https://www.mobile.bg/obiava-300-car,Car 300");
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://www.mobile.bg/obiavi/bmw", notifiable, logErrors, tempOldAdvertisementsPath, new ScanSettings(5)));
+        doReturn(page(101, 102)).when(scanner).fetchPage("https://www.mobile.bg/obiavi/bmw");
+        doReturn(page(201, 300)).when(scanner).fetchPage("https://www.mobile.bg/obiavi/bmw/p-2");
+        lenient().doReturn(page(401)).when(scanner).fetchPage("https://www.mobile.bg/obiavi/bmw/p-3");
+
+        scanner.scan();
+
+        // Page 3 was prefetched while page 2 was parsed, but crawling stops there
+        verify(scanner, never()).fetchPage("https://www.mobile.bg/obiavi/bmw/p-4");
+        List<String> ids = Files.readAllLines(tempOldAdvertisementsPath).stream().map(line -> line.split(",")[0]).toList();
+        assertEquals(List.of("300", "101", "102", "201"), ids);
+        verify(notifiable).sendNotification(anyString(), anyString());
+    }
+
+    @Test
+    void prefetchStillInFlightWhenCrawlStopsShouldBeClosed() throws Exception {
+        Files.writeString(tempOldAdvertisementsPath, "102,https://www.mobile.bg/obiava-102-car,Car 102");
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://www.mobile.bg/obiavi/bmw", notifiable, logErrors, tempOldAdvertisementsPath, new ScanSettings(3)));
+        FetchedPage inFlight = mock(FetchedPage.class);
+        CountDownLatch release = new CountDownLatch(1);
+        doReturn(page(101, 102)).when(scanner).fetchPage("https://www.mobile.bg/obiavi/bmw");
+        doAnswer(invocation -> {
+            release.await();
+            return inFlight;
+        }).when(scanner).fetchPage("https://www.mobile.bg/obiavi/bmw/p-2");
+
+        scanner.scan();
+        verify(inFlight, never()).close();
+        release.countDown();
+
+        verify(inFlight, timeout(5_000)).close();
+    }
+
+    @Test
+    void failedPageShouldAbortScanSoRescanReportsAllPages() throws Exception {
+        Files.writeString(tempOldAdvertisementsPath, "300,https://www.mobile.bg/obiava-300-car,Car 300\n");
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://www.mobile.bg/obiavi/bmw", notifiable, logErrors, tempOldAdvertisementsPath, new ScanSettings(5)));
+        FetchedPage secondPage = page(201);
+        doReturn(page(101), page(101)).when(scanner).fetchPage("https://www.mobile.bg/obiavi/bmw");
+        doThrow(new IOException("connection reset")).doReturn(secondPage)
+                .when(scanner).fetchPage("https://www.mobile.bg/obiavi/bmw/p-2");
+        doReturn(page(300)).when(scanner).fetchPage("https://www.mobile.bg/obiavi/bmw/p-3");
+
+        scanner.scan();
+
+        assertEquals(1, Files.readAllLines(tempOldAdvertisementsPath).size());
+        verifyNoInteractions(notifiable);
+
+        scanner.scan();
+
+        List<String> ids = Files.readAllLines(tempOldAdvertisementsPath).stream().map(line -> line.split(",")[0]).toList();
+        assertEquals(List.of("300", "101", "201"), ids);
+        verify(notifiable).sendNotification(anyString(), argThat(message -> message.contains("Car 101") && message.contains("Car 201")));
+    }
+
+    @Test
+    void scanShouldStopCrawlingWhenPageHasNoUnseenItems() throws Exception {
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://www.mobile.bg/obiavi/bmw", notifiable, logErrors, tempOldAdvertisementsPath, new ScanSettings(5)));
+        doReturn(page(101), page(101)).when(scanner).fetchPage(anyString());
+
+        scanner.scan();
+
+        verify(scanner, never()).fetchPage("https://www.mobile.bg/obiavi/bmw/p-4");
+        assertEquals(1, Files.readAllLines(tempOldAdvertisementsPath).size());
+    }
+
+    @Test
+    void scanShouldFetchOnlyFirstPageByDefault() throws Exception {
+        MobileBgScanner scanner = spy(mobileBgScanner);
+        doReturn(page(101, 102)).when(scanner).fetchPage("https://example.com");
+
+        scanner.scan();
+
+        verify(scanner, times(1)).fetchPage(anyString());
+        assertEquals(2, Files.readAllLines(tempOldAdvertisementsPath).size());
+    }
+
+    @Test
+    void scanShouldRecordFlightRecorderEvents() throws Exception {
+        MobileBgScanner scanner = spy(mobileBgScanner);
+        FetchedPage response = page(101, 102);
+        when(response.wireBytes()).thenReturn(4096L);
+        doReturn(response).when(scanner).fetchPage("https://example.com");
+        Path dump = tempDir.resolve("scan.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("bg.paskov.scanner.Scan");
+            recording.enable("bg.paskov.scanner.ScanPhase");
+            recording.enable("bg.paskov.scanner.PageFetch");
+            recording.start();
+
+            scanner.scan();
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getString("url").equals("https://example.com"))
+                .toList();
+        RecordedEvent scan = events.stream().filter(event -> event.getEventType().getName().equals("bg.paskov.scanner.Scan")).findFirst().orElseThrow();
+        List<String> phases = events.stream()
+                .filter(event -> event.getEventType().getName().equals("bg.paskov.scanner.ScanPhase"))
+                .map(event -> event.getString("phase"))
+                .toList();
+
+        assertEquals(1, scan.getInt("pages"));
+        assertEquals(4096, scan.getLong("bytes"));
+        assertEquals(2, scan.getInt("adsSeen"));
+        assertEquals(2, scan.getInt("adsNew"));
+        assertFalse(scan.getBoolean("notModified"));
+        assertEquals(List.of("parse", "diff", "notify", "save"), phases);
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("bg.paskov.scanner.PageFetch")));
+    }
+
+    @Test
+    void scanShouldTellListenersAboutSavedAdvertisements() throws Exception {
+        Files.writeString(tempOldAdvertisementsPath, "101,https://www.mobile.bg/obiava-101,Car 101");
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://example.com", notifiable, logErrors, tempOldAdvertisementsPath));
+        doReturn(page(102, 101)).when(scanner).fetchPage("https://example.com");
+        ScanListener listener = mock(ScanListener.class);
+        ScanListener failing = mock(ScanListener.class);
+        doThrow(new IllegalStateException("boom")).when(failing).advertisementsSaved(anyString(), anyList());
+        scanner.addScanListener(failing);
+        scanner.addScanListener(listener);
+
+        scanner.scan();
+
+        verify(listener).advertisementsSaved("https://example.com", List.of(new Advertisement(102, "Car 102")));
+        verify(logErrors).log(eq("bg.paskov.scanner.service.MobileBgScanner"), eq("ERROR"), contains("Scan listener failed"), any());
+    }
+
+    // A results item laid out like mobile.bg's
+    private static String item(long id, String price, String... params) {
+        StringBuilder html = new StringBuilder("<div class=\"item\"><div class=\"text\">")
+                .append("<div class=\"zaglavie\"><a href=\"//www.mobile.bg/obiava-").append(id).append("-car\">Car ").append(id).append("</a></div>")
+                .append("<div class=\"price \"><div>").append(price).append("</div><div class=\"priceEUR\">1 EUR</div></div>")
+                .append("<div class=\"params\">");
+        for (String param : params) {
+            html.append("<span>").append(param).append("</span>");
+        }
+        return html.append("</div><div class=\"seller\"><div class=\"location\">гр. София</div></div></div></div>").toString();
+    }
+
+    private FetchedPage pageOf(String... items) throws Exception {
+        String html = "<html><body>" + String.join("", items) + "</body></html>";
+        FetchedPage response = mock(FetchedPage.class);
+        lenient().when(response.parse()).thenReturn(Jsoup.parse(html, "https://www.mobile.bg/"));
+        lenient().when(response.streamParser()).thenReturn(new StreamParser(Parser.htmlParser()).parse(html, "https://www.mobile.bg/"));
+        return response;
+    }
+
+    @Test
+    void toAdvertisementShouldExtractStructuredFields() {
+        Element element = Jsoup.parse(item(7, "18 400 лв.", "септември 2017", "34 000 км", "Дизелов", "262 к.с."))
+                .selectFirst(MobileBgScanner.ITEM_QUERY);
+
+        Advertisement advertisement = MobileBgScanner.toAdvertisement(element);
+
+        assertEquals(new Advertisement(7, "Car 7"), advertisement);
+        assertEquals(18_400, advertisement.price());
+        assertEquals(2017, advertisement.year());
+        assertEquals(34_000, advertisement.mileage());
+        assertEquals("Дизелов", advertisement.fuel());
+        assertEquals("гр. София", advertisement.location());
+    }
+
+    @Test
+    void toAdvertisementShouldLeaveMissingFieldsUnknown() {
+        Element element = Jsoup.parse(item(7, "По договаряне")).selectFirst(MobileBgScanner.ITEM_QUERY);
+
+        Advertisement advertisement = MobileBgScanner.toAdvertisement(element);
+
+        assertEquals(Advertisement.UNKNOWN, advertisement.price());
+        assertEquals(Advertisement.UNKNOWN, advertisement.year());
+        assertEquals(Advertisement.UNKNOWN, advertisement.mileage());
+        assertNull(advertisement.fuel());
+    }
+
+    @Test
+    void scanShouldDropAdvertisementsRejectedByFilter() throws Exception {
+        ScanSettings settings = new ScanSettings(1, true, FilterExpression.compile("price < 15000 && year >= 2015"));
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://example.com", notifiable, logErrors, tempOldAdvertisementsPath, settings));
+        doReturn(pageOf(
+                item(1, "12 000 лв.", "май 2016", "90 000 км", "Бензинов"),
+                item(2, "25 000 лв.", "май 2019", "20 000 км", "Дизелов"),
+                item(3, "9 000 лв.", "май 2009", "200 000 км", "Дизелов")
+        )).when(scanner).fetchPage("https://example.com");
+
+        scanner.scan();
+
+        assertEquals(List.of("1,https://www.mobile.bg/obiava-1,Car 1"), Files.readAllLines(tempOldAdvertisementsPath));
+        verify(notifiable).sendNotification(anyString(), argThat(message -> message.contains("Car 1") && !message.contains("Car 2")));
+        assertEquals(1, scanner.newAdvertisementCount());
+    }
+
+    @Test
+    void scanShouldReportPriceDropOfKnownAdvertisement() throws Exception {
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://example.com", notifiable, logErrors, seenStore, ScanSettings.defaults()));
+        doReturn(pageOf(item(1, "12 000 лв.", "май 2016")), pageOf(item(1, "10 500 лв.", "май 2016")))
+                .when(scanner).fetchPage("https://example.com");
+        ScanListener listener = mock(ScanListener.class);
+        scanner.addScanListener(listener);
+
+        scanner.scan();
+        scanner.scan();
+
+        AdvertisementChange change = new AdvertisementChange(new Advertisement(1, "Car 1"), AdvertisementChange.Type.PRICE_DROP, 12_000);
+        verify(listener).advertisementsChanged("https://example.com", List.of(change));
+        verify(notifiable).sendNotification(eq("Price drop"), contains("12000 -> 10500"));
+        assertEquals(1, Files.readAllLines(tempOldAdvertisementsPath).size());
+    }
+
+    @Test
+    void scanShouldRecordFingerprintOfLegacyAdvertisementWithoutReportingChange() throws Exception {
+        Files.writeString(tempOldAdvertisementsPath, "1,https://www.mobile.bg/obiava-1,Car 1\n");
+        SeenStore legacyStore = new JournalSeenStore(new AdvertisementJournal(tempOldAdvertisementsPath, logErrors));
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://example.com", notifiable, logErrors, legacyStore, ScanSettings.defaults()));
+        Advertisement advertisement = MobileBgScanner.toAdvertisement(
+                Jsoup.parse(item(1, "12 000 лв.")).selectFirst(MobileBgScanner.ITEM_QUERY));
+        doReturn(pageOf(item(1, "12 000 лв."))).when(scanner).fetchPage("https://example.com");
+        ScanListener listener = mock(ScanListener.class);
+        scanner.addScanListener(listener);
+
+        scanner.scan();
+
+        assertEquals(advertisement.fingerprint(), legacyStore.fingerprint(1));
+        verify(listener, never()).advertisementsChanged(anyString(), anyList());
+        verifyNoInteractions(notifiable);
+    }
+
+    @Test
+    void streamingScanShouldExtractSameAdvertisementsAsDom() throws Exception {
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://example.com", notifiable, logErrors, tempOldAdvertisementsPath, new ScanSettings(1, true)));
+        doReturn(page(101, 102)).when(scanner).fetchPage("https://example.com");
+
+        scanner.scan();
 
         List<String> expectedLines = List.of(
-                "111,https://example.com/obiava-111,Opel Astra",
-                "222,https://example.com/obiava-222,BMW 320"
+                "101,https://www.mobile.bg/obiava-101,Car 101",
+                "102,https://www.mobile.bg/obiava-102,Car 102"
         );
-
-        assertEquals(expectedLines, actualLines);
+        assertEquals(expectedLines, Files.readAllLines(tempOldAdvertisementsPath));
     }
 
     @Test
-    void saveNewAdvertisementsShouldCreateEmptyFileWhenNoAds() throws Exception {
+    void streamingScanShouldStopReadingAtFirstKnownAdWhenPaginated() throws Exception {
+        Files.writeString(tempOldAdvertisementsPath, "102,https://www.mobile.bg/obiava-102-car,Car 102");
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://example.com", notifiable, logErrors, tempOldAdvertisementsPath, new ScanSettings(3, true)));
+        doReturn(page(101, 102, 103)).when(scanner).fetchPage("https://example.com");
+        lenient().doReturn(page(201)).when(scanner).fetchPage("https://example.com/p-2");
 
-        invokeSaveNewAdvertisements(mobileBgScanner);
+        scanner.scan();
 
-        assertTrue(Files.exists(tempOldAdvertisementsPath));
-        assertEquals(0, Files.size(tempOldAdvertisementsPath));
+        List<String> ids = Files.readAllLines(tempOldAdvertisementsPath).stream().map(line -> line.split(",")[0]).toList();
+        assertEquals(List.of("102", "101"), ids);
     }
 
     @Test
-    void compareShouldNotNotifyWhenNoNewAds() throws Exception {
-        getSetField("newAdvertisements").add(new Advertisement("Opel Astra", "https://example.com/obiava-111", "111"));
-        getSetField("oldAdvertisements").add(new Advertisement("Opel Astra", "https://example.com/obiava-111", "111"));
+    void observingListenerShouldSeeAdsPastFirstKnownAdWithoutNotifyingThem() throws Exception {
+        Files.writeString(tempOldAdvertisementsPath, "102,https://www.mobile.bg/obiava-102-car,Car 102");
+        MobileBgScanner scanner = spy(new MobileBgScanner("https://example.com", notifiable, logErrors, tempOldAdvertisementsPath, new ScanSettings(3, true)));
+        doReturn(page(101, 102, 103)).when(scanner).fetchPage("https://example.com");
+        doReturn(page(201)).when(scanner).fetchPage("https://example.com/p-2");
+        doReturn(page(201)).when(scanner).fetchPage("https://example.com/p-3");
+        ScanListener listener = mock(ScanListener.class);
+        when(listener.observesEveryListing()).thenReturn(true);
+        scanner.addScanListener(listener);
+
+        scanner.scan();
+
+        verify(listener).advertisementsObserved(eq("https://example.com"),
+                argThat(observed -> observed.stream().map(Advertisement::id).toList().equals(List.of(101L, 102L, 103L, 201L))));
+        List<String> ids = Files.readAllLines(tempOldAdvertisementsPath).stream().map(line -> line.split(",")[0]).toList();
+        assertEquals(List.of("102", "101"), ids);
+        verify(notifiable).sendNotification(anyString(), argThat(message -> message.contains("Car 101") && !message.contains("Car 103")));
+    }
 
-        invokeCompareOldAndNewAdvertisements(mobileBgScanner);
+    @Test
+    void scanShouldSkipDiffAndSaveWhenContentHashIsUnchanged() throws Exception {
+        MobileBgScanner scanner = spy(mobileBgScanner);
+        doReturn(page(101, 102), page(101, 102)).when(scanner).fetchPage("https://example.com");
 
-        verify(notifiable, never()).sendNotification(anyString(), anyString());
+        scanner.scan();
+        Files.delete(tempOldAdvertisementsPath);
+        scanner.scan();
+
+        assertFalse(Files.exists(tempOldAdvertisementsPath));
     }
 
     @Test
-    void compareShouldNotifyWhenNewAdIsFound() throws Exception {
-        getSetField("newAdvertisements").add(new Advertisement("Opel Astra", "https://example.com/obiava-111", "111"));
+    void scanShouldSkipParsingWhenServerRepliesNotModified() throws Exception {
+        FetchedPage notModified = mock(FetchedPage.class);
+        when(notModified.statusCode()).thenReturn(304);
+        MobileBgScanner scanner = spy(mobileBgScanner);
+        doReturn(notModified).when(scanner).fetchPage("https://example.com");
 
-        invokeCompareOldAndNewAdvertisements(mobileBgScanner);
+        scanner.scan();
 
-        verify(notifiable).sendNotification(anyString(), anyString());
+        verify(notModified, never()).parse();
+        verify(notifiable, never()).sendNotification(anyString(), anyString());
+        assertFalse(Files.exists(tempOldAdvertisementsPath));
+    }
 
+    @Test
+    void conditionalHeadersShouldUseValidatorsOfLastCommittedScan() throws Exception {
+        FetchedPage response = page(101);
+        when(response.header("ETag")).thenReturn("\"abc\"");
+        when(response.header("Last-Modified")).thenReturn("Wed, 21 Oct 2026 07:28:00 GMT");
+        MobileBgScanner scanner = spy(mobileBgScanner);
+        doReturn(response).when(scanner).fetchPage("https://example.com");
+
+        scanner.scan();
+
+        assertEquals("\"abc\"", scanner.conditionalHeaders("https://example.com").get("If-None-Match"));
+        assertEquals("Wed, 21 Oct 2026 07:28:00 GMT", scanner.conditionalHeaders("https://example.com").get("If-Modified-Since"));
+        assertTrue(scanner.conditionalHeaders("https://example.com/p-2").isEmpty());
     }
 
+    @Test
+    void observingListenerShouldDisableConditionalGetAndStillSeeUnchangedResults() throws Exception {
+        FetchedPage first = page(101);
+        FetchedPage second = page(101);
+        lenient().when(first.header("ETag")).thenReturn("\"abc\"");
+        MobileBgScanner scanner = spy(mobileBgScanner);
+        doReturn(first, second).when(scanner).fetchPage("https://example.com");
+        ScanListener listener = mock(ScanListener.class);
+        when(listener.observesEveryListing()).thenReturn(true);
+        scanner.addScanListener(listener);
+
+        scanner.scan();
+        scanner.scan();
+
+        assertTrue(scanner.conditionalHeaders("https://example.com").isEmpty());
+        verify(listener, times(2)).advertisementsObserved(eq("https://example.com"),
+                argThat(observed -> observed.size() == 1 && observed.get(0).id() == 101));
+    }
 }
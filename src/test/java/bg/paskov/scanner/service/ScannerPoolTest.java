@@ -0,0 +1,100 @@
+package bg.paskov.scanner.service;
+
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ScannerPoolTest {
+
+    @Mock
+    private LogErrors logErrors;
+
+    // Scanner that sleeps to simulate a slow download and tracks peak concurrency
+    private SiteScanner slowScanner(long millis, AtomicInteger running, AtomicInteger peak) {
+        return new SiteScanner() {
+            @Override
+            public void scan() {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+
+            @Override
+            public void printNewAdvertisements() {
+            }
+        };
+    }
+
+    @Test
+    void scanShouldRunAllUrlsConcurrently() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        ScannerPool pool = new ScannerPool(10, logErrors);
+
+        for (int i = 0; i < 5; i++) {
+            pool.addScanner("https://host" + i + ".example.com/search", slowScanner(300, running, peak));
+        }
+
+        long start = System.nanoTime();
+        pool.scan();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(5, peak.get());
+        assertTrue(elapsedMillis < 1_200, "Scan took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void scanShouldRespectPerHostLimit() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        ScannerPool pool = new ScannerPool(2, logErrors);
+
+        for (int i = 0; i < 6; i++) {
+            pool.addScanner("https://www.mobile.bg/search?page=" + i, slowScanner(50, running, peak));
+        }
+
+        pool.scan();
+
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    void scanShouldContinueWhenOneScannerFails() {
+        SiteScanner failing = mock(SiteScanner.class);
+        SiteScanner healthy = mock(SiteScanner.class);
+        doThrow(new RuntimeException("boom")).when(failing).scan();
+
+        ScannerPool pool = new ScannerPool(1, logErrors);
+        pool.addScanner("https://example.com/a", failing);
+        pool.addScanner("https://example.com/b", healthy);
+
+        pool.scan();
+
+        verify(healthy).scan();
+        verify(logErrors).log(eq("bg.paskov.scanner.service.ScannerPool"), eq("ERROR"), anyString(), any(RuntimeException.class));
+    }
+
+    @Test
+    void hostOfShouldReturnLowercaseHost() {
+        assertEquals("www.mobile.bg", ScannerPool.hostOf("https://WWW.Mobile.bg/obiavi?x=1"));
+    }
+
+    @Test
+    void hostOfShouldFallBackToInputWhenUrlIsInvalid() {
+        assertEquals("not a url", ScannerPool.hostOf("not a url"));
+    }
+}
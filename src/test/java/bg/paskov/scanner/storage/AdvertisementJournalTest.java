@@ -0,0 +1,142 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class AdvertisementJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    LogErrors logErrors;
+
+    private Path journalPath;
+    private AdvertisementJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        journalPath = tempDir.resolve("old.csv");
+        journal = new AdvertisementJournal(journalPath, logErrors);
+    }
+
+    private static Advertisement ad(String id, String title) {
+        return new Advertisement(Long.parseLong(id), title);
+    }
+
+    @Test
+    void loadShouldReturnEmptySetWhenFileIsMissing() {
+        assertTrue(journal.load().isEmpty());
+    }
+
+    @Test
+    void appendShouldOnlyAddNewLines() throws Exception {
+        journal.append(List.of(ad("111", "Opel Astra")));
+        journal.append(List.of(ad("222", "BMW 320")));
+
+        List<String> expectedLines = List.of(
+                "111,https://www.mobile.bg/obiava-111,Opel Astra",
+                "222,https://www.mobile.bg/obiava-222,BMW 320"
+        );
+        assertEquals(expectedLines, Files.readAllLines(journalPath));
+    }
+
+    @Test
+    void appendShouldTerminateUnfinishedLastLine() throws Exception {
+        Files.writeString(journalPath, "111,https://www.mobile.bg/obiava-111,Opel Astra");
+
+        journal.append(List.of(ad("222", "BMW 320")));
+
+        assertEquals(2, journal.load().size());
+    }
+
+    @Test
+    void loadShouldSkipMalformedLines() throws Exception {
+        Files.writeString(journalPath, "111,https://www.mobile.bg/obiava-111,Opel Astra\n222,https://www.mobile\n");
+
+        assertEquals(1, journal.load().size());
+        verify(logErrors).log(anyString(), eq("WARN"), anyString(), isNull());
+    }
+
+    @Test
+    void loadShouldSkipNonNumericIds() throws Exception {
+        Files.writeString(journalPath, "abc,https://www.mobile.bg/obiava-abc,Opel Astra\n");
+
+        assertTrue(journal.load().isEmpty());
+        verify(logErrors).log(anyString(), eq("WARN"), anyString(), isNull());
+    }
+
+    @Test
+    void compactShouldKeepOneLinePerId() throws Exception {
+        journal.append(List.of(ad("111", "Opel Astra"), ad("222", "BMW 320")));
+        journal.append(List.of(ad("111", "Opel Astra GTC")));
+
+        journal.compact();
+
+        List<String> expectedLines = List.of(
+                "222,https://www.mobile.bg/obiava-222,BMW 320",
+                "111,https://www.mobile.bg/obiava-111,Opel Astra GTC"
+        );
+        assertEquals(expectedLines, Files.readAllLines(journalPath));
+        assertFalse(Files.exists(tempDir.resolve("old.csv.tmp")));
+    }
+
+    @Test
+    void appendShouldNotCreateJournalForEmptyList() {
+        journal.append(List.of());
+
+        assertFalse(Files.exists(journalPath));
+    }
+
+    @Test
+    void compactShouldLeaveJournalWithoutDuplicatesUntouched() throws Exception {
+        journal.append(List.of(ad("111", "Opel Astra"), ad("222", "BMW 320")));
+        FileTime written = FileTime.fromMillis(1_000_000_000L);
+        Files.setLastModifiedTime(journalPath, written);
+
+        journal.compact();
+
+        assertEquals(written, Files.getLastModifiedTime(journalPath));
+        assertEquals(2, Files.readAllLines(journalPath).size());
+    }
+
+    @Test
+    void compactShouldDropOldestEntriesBeyondRetentionLimit() throws Exception {
+        AdvertisementJournal limited = new AdvertisementJournal(journalPath, logErrors, AdvertisementJournal.DEFAULT_COMPACTION_THRESHOLD, 2);
+        limited.append(List.of(ad("111", "A"), ad("222", "B"), ad("333", "C")));
+
+        limited.compact();
+
+        assertEquals(List.of("222", "333"), Files.readAllLines(journalPath).stream().map(line -> line.split(",")[0]).toList());
+    }
+
+    @Test
+    void appendShouldCompactInBackgroundWhenThresholdIsExceeded() throws Exception {
+        AdvertisementJournal small = new AdvertisementJournal(journalPath, logErrors, 100, 0);
+        small.append(List.of(ad("111", "Opel Astra"), ad("222", "BMW 320")));
+        small.append(List.of(ad("111", "Opel Astra"), ad("333", "Audi A4")));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.readAllLines(journalPath).size() != 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(3, Files.readAllLines(journalPath).size());
+    }
+}
@@ -0,0 +1,102 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FingerprintLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    LogErrors logErrors;
+
+    private static Advertisement ad(long id, int price) {
+        return new Advertisement(id, "Car " + id, price, 2016, 90_000, "Дизелов", "гр. София");
+    }
+
+    @Test
+    void shouldReloadLatestFingerprints() {
+        Path path = tempDir.resolve("old.csv.fp");
+        FingerprintLog log = new FingerprintLog(path, logErrors);
+        log.putAll(List.of(ad(1, 12_000), ad(2, 8_000)));
+        log.putAll(List.of(ad(1, 10_500)));
+
+        FingerprintLog reloaded = new FingerprintLog(path, logErrors);
+
+        assertEquals(ad(1, 10_500).fingerprint(), reloaded.get(1));
+        assertEquals(ad(2, 8_000).fingerprint(), reloaded.get(2));
+        assertEquals(SeenStore.NO_FINGERPRINT, reloaded.get(3));
+        assertEquals(2, reloaded.size());
+    }
+
+    @Test
+    void putAllShouldNotAppendUnchangedFingerprints() throws Exception {
+        Path path = tempDir.resolve("old.csv.fp");
+        FingerprintLog log = new FingerprintLog(path, logErrors);
+
+        log.putAll(List.of(ad(1, 12_000)));
+        log.putAll(List.of(ad(1, 12_000)));
+
+        assertEquals(16, Files.size(path));
+    }
+
+    @Test
+    void shouldIgnoreTornTrailingRecord() throws Exception {
+        Path path = tempDir.resolve("old.csv.fp");
+        new FingerprintLog(path, logErrors).putAll(List.of(ad(1, 12_000)));
+        Files.write(path, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        FingerprintLog reloaded = new FingerprintLog(path, logErrors);
+
+        assertEquals(ad(1, 12_000).fingerprint(), reloaded.get(1));
+        assertEquals(1, reloaded.size());
+    }
+
+    @Test
+    void appendAfterTornTrailingRecordShouldStayAligned() throws Exception {
+        Path path = tempDir.resolve("old.csv.fp");
+        new FingerprintLog(path, logErrors).putAll(List.of(ad(1, 12_000)));
+        Files.write(path, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        new FingerprintLog(path, logErrors).putAll(List.of(ad(2, 8_000)));
+        FingerprintLog reloaded = new FingerprintLog(path, logErrors);
+
+        assertEquals(ad(1, 12_000).fingerprint(), reloaded.get(1));
+        assertEquals(ad(2, 8_000).fingerprint(), reloaded.get(2));
+        assertEquals(2, reloaded.size());
+        assertEquals(2 * 16, Files.size(path));
+    }
+
+    @Test
+    void shouldCompactOnceMostRecordsAreSuperseded() throws Exception {
+        Path path = tempDir.resolve("old.csv.fp");
+        FingerprintLog log = new FingerprintLog(path, logErrors);
+
+        for (int price = 1; price <= 3000; price++) {
+            List<Advertisement> batch = new ArrayList<>();
+            batch.add(ad(1, price));
+            batch.add(ad(2, price));
+            log.putAll(batch);
+        }
+
+        assertTrue(Files.size(path) < 3000 * 2 * 16, "superseded records should have been dropped");
+        FingerprintLog reloaded = new FingerprintLog(path, logErrors);
+        assertEquals(ad(1, 3000).fingerprint(), reloaded.get(1));
+        assertEquals(ad(2, 3000).fingerprint(), reloaded.get(2));
+    }
+}
@@ -0,0 +1,85 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JournalSeenStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    LogErrors logErrors;
+
+    @Test
+    void shouldWarmIndexFromJournalOnStartup() throws Exception {
+        Path journalPath = tempDir.resolve("old.csv");
+        Files.writeString(journalPath, "111,https://example.com/obiava-111,Opel Astra\n" +
+                "112,https://example.com/obiava-112,Opel Kadet\n");
+
+        JournalSeenStore store = new JournalSeenStore(new AdvertisementJournal(journalPath, logErrors));
+
+        assertEquals(2, store.size());
+        assertTrue(store.contains(111));
+        assertTrue(store.contains(112));
+        assertFalse(store.contains(113));
+    }
+
+    @Test
+    void addAllShouldUpdateIndexAndJournal() throws Exception {
+        Path journalPath = tempDir.resolve("old.csv");
+        JournalSeenStore store = new JournalSeenStore(new AdvertisementJournal(journalPath, logErrors));
+
+        store.addAll(List.of(new Advertisement(222, "BMW 320")));
+
+        assertTrue(store.contains(222));
+        assertEquals(1, Files.readAllLines(journalPath).size());
+    }
+
+    @Test
+    void fingerprintsShouldSurviveRestartNextToUnchangedJournal() throws Exception {
+        Path journalPath = tempDir.resolve("old.csv");
+        Advertisement advertisement = new Advertisement(222, "BMW 320", 12_000, 2016, 90_000, "Дизелов", null);
+        Advertisement cheaper = new Advertisement(222, "BMW 320", 11_000, 2016, 90_000, "Дизелов", null);
+        JournalSeenStore store = new JournalSeenStore(new AdvertisementJournal(journalPath, logErrors));
+        store.addAll(List.of(advertisement));
+        store.updateFingerprints(List.of(cheaper));
+
+        JournalSeenStore reloaded = new JournalSeenStore(new AdvertisementJournal(journalPath, logErrors));
+
+        assertEquals(cheaper.fingerprint(), reloaded.fingerprint(222));
+        assertEquals(SeenStore.NO_FINGERPRINT, reloaded.fingerprint(223));
+        assertEquals(List.of("222,https://www.mobile.bg/obiava-222,BMW 320"), Files.readAllLines(journalPath));
+    }
+
+    @Test
+    void compactionTrimShouldDropFingerprintsOfTrimmedIds() {
+        Path journalPath = tempDir.resolve("old.csv");
+        AdvertisementJournal journal = new AdvertisementJournal(journalPath, logErrors, AdvertisementJournal.DEFAULT_COMPACTION_THRESHOLD, 1);
+        Advertisement older = new Advertisement(111, "Opel Astra", 5_000, 2010, 150_000, "Бензинов", null);
+        Advertisement newer = new Advertisement(222, "BMW 320", 12_000, 2016, 90_000, "Дизелов", null);
+        JournalSeenStore store = new JournalSeenStore(journal);
+        store.addAll(List.of(older));
+        store.addAll(List.of(newer));
+
+        journal.compact();
+
+        assertEquals(SeenStore.NO_FINGERPRINT, store.fingerprint(111));
+        assertEquals(newer.fingerprint(), store.fingerprint(222));
+        JournalSeenStore reloaded = new JournalSeenStore(new AdvertisementJournal(journalPath, logErrors));
+        assertEquals(SeenStore.NO_FINGERPRINT, reloaded.fingerprint(111));
+        assertEquals(newer.fingerprint(), reloaded.fingerprint(222));
+    }
+}
@@ -0,0 +1,199 @@
+package bg.paskov.scanner.storage;
+
+import bg.paskov.scanner.model.Advertisement;
+import bg.paskov.scanner.util.LogErrors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MappedSeenStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    LogErrors logErrors;
+
+    private static List<Advertisement> ads(long... ids) {
+        List<Advertisement> advertisements = new ArrayList<>();
+        for (long id : ids) {
+            advertisements.add(new Advertisement(id, "Car " + id));
+        }
+        return advertisements;
+    }
+
+    @Test
+    void addAllShouldMakeIdsVisibleImmediately() {
+        MappedSeenStore store = MappedSeenStore.open(tempDir.resolve("old.ids"), logErrors);
+
+        store.addAll(ads(300, 100, 200));
+
+        assertTrue(store.contains(100));
+        assertTrue(store.contains(300));
+        assertFalse(store.contains(400));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void mergeShouldKeepAllIdsAndRemoveDeltaSegments() throws Exception {
+        MappedSeenStore store = MappedSeenStore.open(tempDir.resolve("old.ids"), logErrors, 1_000, true);
+        store.addAll(ads(5, 3, 9));
+        store.addAll(ads(3, 7));
+
+        store.merge();
+
+        assertFalse(Files.exists(tempDir.resolve("old.ids.records-0")));
+        assertTrue(Files.exists(tempDir.resolve("old.ids.base-1")));
+        for (long id : new long[]{3, 5, 7, 9}) {
+            assertTrue(store.contains(id), "missing " + id);
+        }
+        assertFalse(store.contains(4));
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    void reopenShouldMapBaseAndReplayDeltaSegments() {
+        Path prefix = tempDir.resolve("old.ids");
+        MappedSeenStore store = MappedSeenStore.open(prefix, logErrors, 1_000, false);
+        store.addAll(ads(1, 2, 3));
+        store.merge();
+        store.addAll(ads(4));
+
+        MappedSeenStore reopened = MappedSeenStore.open(prefix, logErrors, 1_000, false);
+
+        assertEquals(4, reopened.size());
+        assertTrue(reopened.contains(1));
+        assertTrue(reopened.contains(4));
+    }
+
+    @Test
+    void exceedingThresholdShouldMergeInBackground() throws Exception {
+        MappedSeenStore store = MappedSeenStore.open(tempDir.resolve("old.ids"), logErrors, 2, true);
+
+        store.addAll(ads(1, 2, 3));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!Files.exists(tempDir.resolve("old.ids.base-1")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(Files.exists(tempDir.resolve("old.ids.base-1")));
+        assertTrue(store.contains(2));
+    }
+
+    @Test
+    void closeShouldWaitForBackgroundMerge() {
+        MappedSeenStore store = MappedSeenStore.open(tempDir.resolve("old.ids"), logErrors, 2, true);
+        store.addAll(ads(1, 2, 3));
+
+        store.close();
+
+        assertTrue(Files.exists(tempDir.resolve("old.ids.base-1")));
+        assertFalse(Files.exists(tempDir.resolve("old.ids.records-0")));
+    }
+
+    @Test
+    void csvImportAndExportShouldRoundTripIds() throws Exception {
+        Path csvPath = tempDir.resolve("old.csv");
+        Files.writeString(csvPath, "111,https://www.mobile.bg/obiava-111,Opel Astra\n" +
+                "222,https://www.mobile.bg/obiava-222,BMW 320\n");
+        MappedSeenStore store = MappedSeenStore.open(tempDir.resolve("old.ids"), logErrors);
+
+        store.importCsv(csvPath);
+        Path exported = tempDir.resolve("export.csv");
+        store.exportCsv(exported);
+
+        assertTrue(store.contains(111));
+        assertEquals(List.of("111,https://www.mobile.bg/obiava-111,", "222,https://www.mobile.bg/obiava-222,"), Files.readAllLines(exported));
+        assertEquals(2, new AdvertisementJournal(exported, logErrors).load().size());
+    }
+
+    @Test
+    void fingerprintsShouldSurviveMergeAndReopen() {
+        Advertisement advertisement = new Advertisement(5, "Car 5", 12_000, 2016, 90_000, "Дизелов", null);
+        MappedSeenStore store = MappedSeenStore.open(tempDir.resolve("old.ids"), logErrors, 1_000, false);
+        store.addAll(List.of(advertisement));
+        store.merge();
+
+        MappedSeenStore reopened = MappedSeenStore.open(tempDir.resolve("old.ids"), logErrors, 1_000, false);
+
+        assertEquals(advertisement.fingerprint(), reopened.fingerprint(5));
+        assertEquals(SeenStore.NO_FINGERPRINT, reopened.fingerprint(6));
+    }
+
+    @Test
+    void updatedFingerprintShouldWinOverMergedOne() {
+        Path prefix = tempDir.resolve("old.ids");
+        Advertisement listed = new Advertisement(5, "Car 5", 12_000, 2016, 90_000, "Дизелов", null);
+        Advertisement reduced = new Advertisement(5, "Car 5", 11_000, 2016, 90_000, "Дизелов", null);
+        MappedSeenStore store = MappedSeenStore.open(prefix, logErrors, 1_000, true);
+        store.addAll(List.of(listed));
+        store.merge();
+
+        store.updateFingerprints(List.of(reduced, new Advertisement(6, "Car 6", 9_000, 2012, 150_000, "Бензинов", null)));
+
+        assertEquals(reduced.fingerprint(), store.fingerprint(5));
+        assertFalse(store.contains(6), "fingerprint updates must not add unknown IDs");
+        assertEquals(1, store.size());
+
+        store.merge();
+        MappedSeenStore reopened = MappedSeenStore.open(prefix, logErrors, 1_000, false);
+        assertEquals(reduced.fingerprint(), reopened.fingerprint(5));
+        assertEquals(1, reopened.size());
+    }
+
+    @Test
+    void legacyBaseAndDeltaWithoutFingerprintsShouldStayReadable() throws Exception {
+        Path prefix = tempDir.resolve("old.ids");
+        Files.write(tempDir.resolve("old.ids.base-1"), ByteBuffer.allocate(32)
+                .putInt(0x5345454E).putInt(1).putLong(2).putLong(10).putLong(20).array());
+        Files.write(tempDir.resolve("old.ids.delta-0"), ByteBuffer.allocate(8).putLong(30).array());
+        Advertisement advertisement = new Advertisement(10, "Car 10", 12_000, 2016, 90_000, "Дизелов", null);
+
+        MappedSeenStore store = MappedSeenStore.open(prefix, logErrors, 1_000, false);
+
+        assertEquals(3, store.size());
+        assertTrue(store.contains(30));
+        assertEquals(SeenStore.NO_FINGERPRINT, store.fingerprint(10));
+
+        store.addAll(List.of(advertisement));
+        store.merge();
+        MappedSeenStore reopened = MappedSeenStore.open(prefix, logErrors, 1_000, false);
+
+        assertEquals(3, reopened.size());
+        assertEquals(advertisement.fingerprint(), reopened.fingerprint(10));
+        assertEquals(SeenStore.NO_FINGERPRINT, reopened.fingerprint(30));
+        assertFalse(Files.exists(tempDir.resolve("old.ids.delta-0")));
+    }
+
+    @Test
+    void csvImportShouldNotRecordTitleOnlyFingerprints() throws Exception {
+        Path csvPath = tempDir.resolve("old.csv");
+        Files.writeString(csvPath, "111,https://www.mobile.bg/obiava-111,Opel Astra\n");
+        MappedSeenStore store = MappedSeenStore.open(tempDir.resolve("old.ids"), logErrors);
+
+        store.importCsv(csvPath);
+
+        assertTrue(store.contains(111));
+        assertEquals(SeenStore.NO_FINGERPRINT, store.fingerprint(111));
+    }
+
+    @Test
+    void corruptBaseShouldBeSkipped() throws Exception {
+        Files.write(tempDir.resolve("old.ids.base-3"), new byte[]{1, 2, 3});
+
+        MappedSeenStore store = MappedSeenStore.open(tempDir.resolve("old.ids"), logErrors);
+
+        assertEquals(0, store.size());
+    }
+}
@@ -13,6 +13,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -131,4 +132,9 @@ public class TrayManagerTest {
         inOrder.verify(configManager).clearProperties();
         inOrder.verify(setupWizard).runIfNeeded();
     }
-}
\ No newline at end of file
+
+    @Test
+    void displayMessageShouldReturnFalseWithoutTrayIcon() {
+        assertFalse(trayManager.displayMessage("Title", "Body"));
+    }
+}
@@ -0,0 +1,84 @@
+package bg.paskov.scanner.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+
+    private long now;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new CircuitBreaker("smtp", 3, 1_000, () -> now);
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    @Test
+    void shouldStayClosedBelowThreshold() {
+        fail(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void shouldOpenAfterConsecutiveFailures() {
+        fail(3);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void successShouldResetFailureCount() {
+        fail(2);
+        circuitBreaker.recordSuccess();
+        fail(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+    }
+
+    @Test
+    void shouldAllowSingleTrialAfterCoolDown() {
+        fail(3);
+        now += TimeUnit.MILLISECONDS.toNanos(1_000);
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void successfulTrialShouldClose() {
+        fail(3);
+        now += TimeUnit.MILLISECONDS.toNanos(1_000);
+        circuitBreaker.allowRequest();
+
+        circuitBreaker.recordSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void failedTrialShouldReopen() {
+        fail(3);
+        now += TimeUnit.MILLISECONDS.toNanos(1_000);
+        circuitBreaker.allowRequest();
+
+        circuitBreaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+}
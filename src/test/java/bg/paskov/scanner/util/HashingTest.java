@@ -0,0 +1,51 @@
+package bg.paskov.scanner.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashingTest {
+
+    @Test
+    void sameInputShouldProduceSameHash() {
+        long first = Hashing.fnv1a64(Hashing.FNV_OFFSET_BASIS, "Opel Astra");
+        long second = Hashing.fnv1a64(Hashing.FNV_OFFSET_BASIS, "Opel Astra");
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    void fieldBoundariesShouldAffectHash() {
+        long first = Hashing.fnv1a64(Hashing.fnv1a64(Hashing.FNV_OFFSET_BASIS, "ab"), "c");
+        long second = Hashing.fnv1a64(Hashing.fnv1a64(Hashing.FNV_OFFSET_BASIS, "a"), "bc");
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void differentNumbersShouldProduceDifferentHashes() {
+        assertNotEquals(
+                Hashing.fnv1a64(Hashing.FNV_OFFSET_BASIS, 15_000L),
+                Hashing.fnv1a64(Hashing.FNV_OFFSET_BASIS, 14_500L)
+        );
+    }
+
+    @Test
+    void nullStringShouldNotThrow() {
+        assertDoesNotThrow(() -> Hashing.fnv1a64(Hashing.FNV_OFFSET_BASIS, (String) null));
+    }
+
+    @Test
+    void spreadShouldScatterSequentialIds() {
+        int mask = 1023;
+        Set<Integer> slots = new HashSet<>();
+        for (long id = 11_734_562_431_231_000L; id < 11_734_562_431_231_064L; id++) {
+            slots.add(Hashing.spread(id) & mask);
+        }
+
+        assertTrue(slots.size() > 56, "sequential IDs should land in mostly distinct slots");
+    }
+}
@@ -62,5 +62,77 @@ public class LogErrorsTest {
 
     }
 
+    @Test
+    void queueDepthShouldBeZeroInSyncModeAndAfterFlush() {
+        LogErrors syncLogger = new LogErrors(tempDir.resolve("sync.log"));
+        syncLogger.log("TestModule", "INFO", "Message", null);
+        assertEquals(0, syncLogger.queueDepth());
+
+        LogErrors asyncLogger = new LogErrors(tempDir.resolve("async.log"), true);
+        asyncLogger.log("TestModule", "INFO", "Message", null);
+        asyncLogger.flush();
+        assertEquals(0, asyncLogger.queueDepth());
+        asyncLogger.close();
+    }
+
+    @Test
+    void asyncModeShouldWriteQueuedEntriesOnFlush() throws Exception {
+        Path logFile = tempDir.resolve("error.log");
+        LogErrors logger = new LogErrors(logFile, true);
+
+        logger.log("TestModule", "ERROR", "Async Message", new RuntimeException("boom"));
+        logger.flush();
+
+        List<String> lines = Files.readAllLines(logFile);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).contains("[TestModule] [ERROR] Async Message"));
+        assertTrue(lines.get(2).contains("Details: boom"));
+
+        logger.close();
+    }
 
+    @Test
+    void asyncModeShouldKeepOrderAcrossBatches() throws Exception {
+        Path logFile = tempDir.resolve("error.log");
+        LogErrors logger = new LogErrors(logFile, true);
+
+        for (int i = 0; i < 1000; i++) {
+            logger.log("TestModule", "INFO", "Message " + i, null);
+        }
+        logger.close();
+
+        List<String> messages = Files.readAllLines(logFile).stream()
+                .filter(line -> line.contains("[TestModule]"))
+                .toList();
+        assertEquals(1000, messages.size());
+        assertTrue(messages.get(999).endsWith("Message 999"));
+    }
+
+    @Test
+    void asyncModeShouldRotateOnTrackedSize() throws Exception {
+        Path logFile = tempDir.resolve("error.log");
+        LogErrors logger = new LogErrors(logFile, true, 16, 200);
+
+        for (int i = 0; i < 10; i++) {
+            logger.log("TestModule", "INFO", "Message " + i, null);
+            logger.flush();
+        }
+        logger.close();
+
+        assertTrue(Files.exists(tempDir.resolve("error.log.1")));
+        assertTrue(Files.size(logFile) < 400);
+    }
+
+    @Test
+    void asyncModeShouldDropEntriesAfterClose() throws Exception {
+        Path logFile = tempDir.resolve("error.log");
+        LogErrors logger = new LogErrors(logFile, true);
+
+        logger.log("TestModule", "INFO", "Before close", null);
+        logger.close();
+        logger.log("TestModule", "INFO", "After close", null);
+
+        assertEquals(1, logger.droppedEntries());
+        assertTrue(Files.readAllLines(logFile).stream().noneMatch(line -> line.contains("After close")));
+    }
 }
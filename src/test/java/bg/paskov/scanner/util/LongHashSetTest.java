@@ -0,0 +1,54 @@
+package bg.paskov.scanner.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashSetTest {
+
+    @Test
+    void addShouldReturnFalseForDuplicates() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue(set.add(11734562431231233L));
+        assertFalse(set.add(11734562431231233L));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void containsShouldFindAllValuesAfterResize() {
+        LongHashSet set = new LongHashSet(4);
+        for (long id = 1; id <= 10_000; id++) {
+            set.add(id * 31);
+        }
+
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(set.contains(id * 31));
+        }
+        assertFalse(set.contains(32));
+        assertEquals(10_000, set.size());
+    }
+
+    @Test
+    void shouldSupportZero() {
+        LongHashSet set = new LongHashSet();
+
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void clearShouldRemoveAllValues() {
+        LongHashSet set = new LongHashSet();
+        set.add(0);
+        set.add(42);
+
+        set.clear();
+
+        assertEquals(0, set.size());
+        assertFalse(set.contains(42));
+        assertFalse(set.contains(0));
+    }
+}
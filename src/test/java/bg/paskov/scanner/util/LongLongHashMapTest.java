@@ -0,0 +1,72 @@
+package bg.paskov.scanner.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongLongHashMapTest {
+
+    @Test
+    void putShouldReturnPreviousValue() {
+        LongLongHashMap map = new LongLongHashMap();
+
+        assertEquals(-1, map.put(11734562431231233L, 5, -1));
+        assertEquals(5, map.put(11734562431231233L, 7, -1));
+        assertEquals(7, map.get(11734562431231233L, -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void getShouldFindAllValuesAfterResize() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long id = 1; id <= 10_000; id++) {
+            map.put(id * 31, id, 0);
+        }
+
+        for (long id = 1; id <= 10_000; id++) {
+            assertEquals(id, map.get(id * 31, 0));
+        }
+        assertEquals(-1, map.get(32, -1));
+        assertEquals(10_000, map.size());
+    }
+
+    @Test
+    void shouldSupportZeroKey() {
+        LongLongHashMap map = new LongLongHashMap();
+
+        assertEquals(-1, map.get(0, -1));
+        map.put(0, 42, -1);
+        assertEquals(42, map.get(0, -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void forEachShouldVisitEveryEntry() {
+        LongLongHashMap map = new LongLongHashMap();
+        map.put(0, 1, -1);
+        map.put(5, 2, -1);
+        map.put(9, 3, -1);
+
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach(visited::put);
+
+        assertEquals(Map.of(0L, 1L, 5L, 2L, 9L, 3L), visited);
+    }
+
+    @Test
+    void keysShouldListEveryKey() {
+        LongLongHashMap map = new LongLongHashMap(2);
+        map.put(0, 1, -1);
+        map.put(5, 2, -1);
+        map.put(9, 3, -1);
+
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+
+        assertArrayEquals(new long[]{0, 5, 9}, keys);
+    }
+}
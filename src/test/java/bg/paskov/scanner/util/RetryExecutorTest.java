@@ -1,11 +1,22 @@
 package bg.paskov.scanner.util;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -75,6 +86,115 @@ public class RetryExecutorTest {
         assertTrue(content.contains("permanently failed after retries"));
     }
 
+    @Test
+    void executeAsyncShouldCompleteAfterRetries() throws Exception {
+        AtomicInteger callCount = new AtomicInteger();
+        Runnable action = () -> {
+            if (callCount.incrementAndGet() < 3) {
+                throw new RuntimeException();
+            }
+        };
 
-}
+        CompletableFuture<Void> result = RetryExecutor.executeAsync(action, 5, 1, 10, null, "TestModule", "TestOperation", logger);
+
+        result.get(5, TimeUnit.SECONDS);
+        assertEquals(3, callCount.get());
+    }
+
+    @Test
+    void executeAsyncShouldFailAfterMaxAttempts() throws Exception {
+        AtomicInteger callCount = new AtomicInteger();
+        Runnable action = () -> {
+            callCount.incrementAndGet();
+            throw new IllegalStateException("down");
+        };
+
+        CompletableFuture<Void> result = RetryExecutor.executeAsync(action, 3, 1, 10, null, "Mod", "Op", logger);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(3, callCount.get());
+        assertTrue(Files.readString(tempDir.resolve("test.log")).contains("permanently failed after retries"));
+    }
+
+    @Test
+    void executeAsyncShouldNotBlockTheCaller() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Runnable action = () -> { throw new RuntimeException(); };
+
+            long start = System.nanoTime();
+            CompletableFuture<Void> result = RetryExecutor.executeAsync(action, 5, 2_000, 60_000, null, "Mod", "Op", logger, scheduler);
+
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+            assertFalse(result.isDone());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void executeAsyncShouldFailFastWhenCircuitIsOpen() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("smtp", 2, 60_000);
+        AtomicInteger callCount = new AtomicInteger();
+        Runnable action = () -> {
+            callCount.incrementAndGet();
+            throw new RuntimeException();
+        };
+
+        CompletableFuture<Void> result = RetryExecutor.executeAsync(action, 5, 1, 10, circuitBreaker, "Mod", "Op", logger);
 
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CircuitBreaker.OpenException.class, failure.getCause());
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    void nextDelayShouldStayBetweenBaseAndCap() {
+        SplittableRandom random = new SplittableRandom(42);
+        long delay = 100;
+
+        for (int i = 0; i < 1_000; i++) {
+            delay = RetryExecutor.nextDelay(100, 5_000, delay, random);
+            assertTrue(delay >= 100 && delay <= 5_000, "delay " + delay);
+        }
+    }
+
+    @Test
+    void shouldRecordFlightRecorderEventsForAttemptsAndBackoff() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Path dump = tempDir.resolve("retry.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("bg.paskov.scanner.RetryAttempt");
+            recording.enable("bg.paskov.scanner.RetryBackoff");
+            recording.start();
+
+            RetryExecutor.execute(() -> {
+                if (calls.incrementAndGet() == 1) {
+                    throw new IllegalStateException("first attempt fails");
+                }
+            }, 3, 1, "JfrModule", "JfrOperation", logger);
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> "JfrOperation".equals(event.getString("operation")))
+                .toList();
+        List<RecordedEvent> attempts = events.stream()
+                .filter(event -> event.getEventType().getName().equals("bg.paskov.scanner.RetryAttempt"))
+                .toList();
+        List<RecordedEvent> backoffs = events.stream()
+                .filter(event -> event.getEventType().getName().equals("bg.paskov.scanner.RetryBackoff"))
+                .toList();
+
+        assertEquals(2, attempts.size());
+        assertFalse(attempts.get(0).getBoolean("succeeded"));
+        assertEquals(IllegalStateException.class.getName(), attempts.get(0).getString("error"));
+        assertTrue(attempts.get(1).getBoolean("succeeded"));
+        assertEquals(1, backoffs.size());
+        assertEquals(1, backoffs.get(0).getLong("delayMillis"));
+    }
+}